@@ -3,11 +3,17 @@ package com.rawend.demo.Controller;
 
 import com.rawend.demo.entity.TechnicienEmploi;
 import com.rawend.demo.entity.User;
+import com.rawend.demo.services.DisponibiliteService;
 import com.rawend.demo.services.EmploiService;
 import com.rawend.demo.entity.Role;
 import com.rawend.demo.Repository.UserRepository;
 import com.rawend.demo.dto.EmploiRequest;
 import com.rawend.demo.Repository.TechnicienEmploiRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,10 +22,15 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/emplois")
 public class EmploiController {
 
+    // Une matrice au-delà d'un mois devient trop lourde pour le tableau de dispatch
+    private static final int MAX_JOURS_MATRICE = 31;
+
     private final EmploiService emploiService;
+    private final DisponibiliteService disponibiliteService;
 
-    public EmploiController(EmploiService emploiService) {
+    public EmploiController(EmploiService emploiService, DisponibiliteService disponibiliteService) {
         this.emploiService = emploiService;
+        this.disponibiliteService = disponibiliteService;
     }
 
     @PostMapping("/technicien/ajout")
@@ -59,6 +70,17 @@ public class EmploiController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+    @GetMapping("/techniciens/disponibilites")
+    public ResponseEntity<?> getMatriceDisponibilites(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate au = to != null ? to : from.plusDays(7);
+        long jours = ChronoUnit.DAYS.between(from, au);
+        if (jours < 1 || jours > MAX_JOURS_MATRICE) {
+            return ResponseEntity.badRequest().body("La période doit couvrir entre 1 et " + MAX_JOURS_MATRICE + " jours");
+        }
+        return ResponseEntity.ok(disponibiliteService.getMatriceDisponibilites(from, au));
+    }
     @GetMapping("/technicien/existe")
     public ResponseEntity<?> emailPresentDansTable(@RequestParam String email) {
         try {
@@ -1,7 +1,5 @@
 package com.rawend.demo.Controller;
 
-import java.sql.Timestamp;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
@@ -13,6 +11,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +23,8 @@ import com.rawend.demo.entity.ServiceEntity;
 import com.rawend.demo.entity.TypeReduction;
 import com.rawend.demo.services.PromotionService;
 import com.rawend.demo.services.ServiceService;
+import com.rawend.demo.services.TarifsServices;
+import com.rawend.demo.services.VersionsDonnees;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
@@ -41,8 +42,14 @@ public class PromotionController {
     @Autowired
     private ServiceService serviceService;
 
+    @Autowired
+    private TarifsServices tarifsServices;
+
     @Autowired
     private EntityManager entityManager;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
   
     @PostMapping
     @Transactional
@@ -86,6 +93,7 @@ public class PromotionController {
                 service.setPromotion(promotionSauvegardee);
                 serviceService.mettreAJourService(service);
             }
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.PROMOTIONS);
 
             
             Map<String, Object> response = new HashMap<>();
@@ -129,6 +137,7 @@ public class PromotionController {
 
            
             promotionService.supprimerPromotion(promotionId);
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.PROMOTIONS);
 
             return ResponseEntity.ok("La promotion avec l'ID " + promotionId + " et ses services associés ont été supprimés avec succès.");
         } catch (Exception e) {
@@ -169,25 +178,12 @@ public class PromotionController {
                     .body(Map.of("error", "Le service avec l'ID spécifié n'existe pas."));
             }
 
+            // Code inconnu, promotion inactive ou hors période : règle commune d'IndexPromotions
             PromotionEntity promo = promotionService.trouverParCode(codePromo);
             if (promo == null) {
                 return ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "Le code promo est invalide."));
-            }
-
-            if (!promo.getActif()) {
-                return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "La promotion avec ce code n'est pas active."));
-            }
-
-            LocalDate today = LocalDate.now();
-            if (convertToLocalDate(promo.getDateDebut()).isAfter(today) || 
-                convertToLocalDate(promo.getDateFin()).isBefore(today)) {
-                return ResponseEntity
-                    .status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", "La promotion n'est pas valide pour la période actuelle."));
+                    .body(Map.of("error", "Le code promo est invalide ou n'est pas valide aujourd'hui."));
             }
 
             if (!promotionService.estServiceEligible(promo.getId(), serviceId)) {
@@ -197,7 +193,8 @@ public class PromotionController {
             }
 
 
-            double prixReduit = calculerPrixAvecReduction(service.getPrix(), promo);
+            // La promotion est celle du service, active aujourd'hui : prix réduit de la grille
+            Double prixReduit = tarifsServices.prix(serviceId, codePromo);
 
             return ResponseEntity.ok(Map.of(
                 "serviceId", service.getId(),
@@ -224,31 +221,6 @@ public class PromotionController {
 
 
    
-    private LocalDate convertToLocalDate(Timestamp timestamp) {
-        return timestamp.toLocalDateTime().toLocalDate();
-    }
-
-    private double calculerPrixAvecReduction(ServiceEntity service, PromotionEntity promo) {
-        double prixInitial = service.getPrix();
-
-        switch (promo.getTypeReduction()) {
-            case POURCENTAGE:
-                return prixInitial * (1 - promo.getValeurReduction() / 100);
-            case MONTANT_FIXE:
-                return prixInitial - promo.getValeurReduction();
-            default:
-                return prixInitial;
-        }
-    }
-
-
-    private LocalDate convertToLocalDate(Date date) {
-        if (date == null) {
-            return null;
-        }
-        return date.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
-    }
-
    
     @Transactional
     public void supprimerAssociationsParServiceId(Long serviceId) {
@@ -359,6 +331,7 @@ public class PromotionController {
 
             // Mettre à jour la promotion dans la base de données
             promotionService.mettreAJourPromotion(existingPromo);
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.PROMOTIONS);
 
             // Retourner la réponse
             Map<String, Object> response = new HashMap<>();
@@ -371,17 +344,16 @@ public class PromotionController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Une erreur est survenue lors de la mise à jour de la promotion : " + e.getMessage()));
         }
     }
-    private Double calculerPrixAvecReduction(Double prixOriginal, PromotionEntity promo) {
-        if (promo.getTypeReduction() == TypeReduction.POURCENTAGE) {
-            return prixOriginal - (prixOriginal * promo.getValeurReduction() / 100);
-        } else if (promo.getTypeReduction() == TypeReduction.MONTANT_FIXE) {
-            return Math.max(prixOriginal - promo.getValeurReduction(), 0); 
-        }
-        return prixOriginal;
-    }
    
     @GetMapping
-    public ResponseEntity<List<PromotionDTO>> obtenirToutesLesPromotions() {
+    public ResponseEntity<List<PromotionDTO>> obtenirToutesLesPromotions(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // La liste reprend les titres des services associés
+        String etag = versionsDonnees.etag(null,
+            VersionsDonnees.Agregat.PROMOTIONS, VersionsDonnees.Agregat.CATALOGUE);
+        if (versionsDonnees.nonModifie(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         try {
             // Récupérer toutes les promotions depuis le service
             List<PromotionEntity> promotions = promotionService.obtenirToutesLesPromotions();
@@ -406,7 +378,7 @@ public class PromotionController {
                 })
                 .collect(Collectors.toList());
 
-            return ResponseEntity.ok(promotionsDTO);
+            return ResponseEntity.ok().eTag(etag).body(promotionsDTO);
         } catch (Exception e) {
            
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -3,19 +3,27 @@ package com.rawend.demo.Controller;
 import com.rawend.demo.Repository.ReservationRepository;
 import com.rawend.demo.Repository.TechnicienEmploiRepository;
 import com.rawend.demo.Repository.AffectationTechnicienRepository;
+import com.rawend.demo.dto.AffectationCommande;
 import com.rawend.demo.dto.ReservationRequest;
+import com.rawend.demo.dto.VerificationCreneau;
 import com.rawend.demo.entity.AffectationTechnicien;
 import com.rawend.demo.entity.JourRepos;
-import com.rawend.demo.entity.Notification;
 import com.rawend.demo.entity.ReservationEntity;
 import com.rawend.demo.entity.TechnicienEmploi;
-import com.rawend.demo.services.NotificationService;
+import com.rawend.demo.services.IdempotenceReservations;
+import com.rawend.demo.services.ImportReservations;
+import com.rawend.demo.services.OccupationIndex;
 import com.rawend.demo.services.ReservationService;
+import com.rawend.demo.services.RosterCapacite;
+import com.rawend.demo.services.VersionsDonnees;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.IOException;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
@@ -29,14 +37,15 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -56,10 +65,20 @@ public class ReservationController {
 
 
     @Autowired
-    private NotificationService notificationService;
+    private OccupationIndex occupationIndex;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private RosterCapacite rosterCapacite;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    @Autowired
+    private IdempotenceReservations idempotenceReservations;
+
+    @Autowired
+    private ImportReservations importReservations;
+
    
     @Autowired
     public ReservationController(AffectationTechnicienRepository affectationTechnicienRepository,TechnicienEmploiRepository technicienEmploiRepository) {
@@ -83,180 +102,75 @@ public class ReservationController {
         ));
     }
 
+    // Longueur de la colonne idempotence_reservation.cle
+    private static final int MAX_CLE_IDEMPOTENCE = 255;
+
     @PostMapping("/add")
-    public Map<String, Object> addReservation(@RequestBody ReservationRequest request, Authentication authentication) {
-        Map<String, Object> response = reservationService.createReservation(request, authentication);
-
-        List<String> adminEmails = entityManager.createNativeQuery(
-        	    "SELECT email FROM users WHERE role = 'ADMIN'")
-        	    .getResultList();
-        LocalDateTime dateDebut = (LocalDateTime) response.get("dateReservation");
-        String dureeStr = (String) response.get("duree");
-
-        // --- Calcul de la date de fin ---
-        long dureeHeures = 0;
-        long dureeMinutes = 0;
-
-        if (dureeStr.contains("h")) {
-            dureeHeures = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les heures
-        } else if (dureeStr.contains("min")) {
-            dureeMinutes = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les minutes
+    public Map<String, Object> addReservation(@RequestBody ReservationRequest request, Authentication authentication,
+            @RequestHeader(value = "Idempotency-Key", required = false) String cleIdempotence) {
+        if (cleIdempotence == null || cleIdempotence.isBlank()) {
+            // Administrateurs notifiés et rappels planifiés après commit (PipelineReservation)
+            return reservationService.createReservation(request, authentication);
         }
-
-        LocalDateTime dateFin = dateDebut.plusHours(dureeHeures).plusMinutes(dureeMinutes);
-
-        // --- Envoi de la notification aux administrateurs ---
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        String dateDebutStr = dateDebut.format(formatter);
-        String dateFinStr = dateFin.format(formatter);
-
-        // --- Création du message de notification ---
-        String notificationMessage = "Vous avez une nouvelle réservation: " + response.get("reservationId") + 
-                " pour le service: " + response.get("serviceTitre")  +
-                                     " prévue du " + dateDebutStr +
-                                     " au " + dateFinStr + ".";
-
-        notificationService.sendNotificationToAdmins(notificationMessage);
-
-        return response;
-    }
-
-    private LocalDateTime calculerDateFin(LocalDateTime dateDebut, String duree) {
-        // Vérification des paramètres
-        if (dateDebut == null || duree == null || duree.isEmpty()) {
-            return dateDebut;
+        if (cleIdempotence.length() > MAX_CLE_IDEMPOTENCE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key trop longue");
         }
 
-        // Extraction des heures et minutes
-        int heures = 0;
-        int minutes = 0;
-
-        // Utilisation d'une expression régulière pour parser la durée
-        Pattern pattern = Pattern.compile("(\\d+)h\\s*(\\d+)min|(\\d+)h|(\\d+)min");
-        Matcher matcher = pattern.matcher(duree.toLowerCase());
-
-        if (matcher.find()) {
-            if (matcher.group(1) != null && matcher.group(2) != null) {
-                // Format "Xh Ymin"
-                heures = Integer.parseInt(matcher.group(1));
-                minutes = Integer.parseInt(matcher.group(2));
-            } else if (matcher.group(3) != null) {
-                // Format "Xh"
-                heures = Integer.parseInt(matcher.group(3));
-            } else if (matcher.group(4) != null) {
-                // Format "Ymin"
-                minutes = Integer.parseInt(matcher.group(4));
+        // Nouvelle tentative : on renvoie la réponse d'origine sans rien refaire
+        Map<String, Object> dejaTraitee = idempotenceReservations.trouver(cleIdempotence, authentication.getName());
+        if (dejaTraitee != null) {
+            return dejaTraitee;
+        }
+        try {
+            return reservationService.createReservation(request, authentication, cleIdempotence);
+        } catch (DataIntegrityViolationException e) {
+            // Tentative concurrente avec la même clé : la première a été validée
+            dejaTraitee = idempotenceReservations.trouver(cleIdempotence, authentication.getName());
+            if (dejaTraitee != null) {
+                return dejaTraitee;
             }
+            throw e;
         }
-
-        return dateDebut.plusHours(heures).plusMinutes(minutes);
     }
-  
 
-    @GetMapping("/dates-indisponibles")
-    public ResponseEntity<List<Map<String, LocalDateTime>>> getCreneauxCompletementOccupees() {
-        // 1. Get all technicians and reservations
-        List<TechnicienEmploi> techniciens = technicienEmploiRepository.findAll();
-        List<ReservationEntity> reservations = reservationRepository.findAll();
-
-        // 2. Count reservations per time slot
-        Map<LocalDateTime, Integer> reservationsParCreneau = new HashMap<>();
-        for (ReservationEntity res : reservations) {
-            LocalDateTime fin = calculerDateFin(res.getDateReservation(), res.getDuree());
-            LocalDateTime creneau = res.getDateReservation();
-            
-            while (creneau.isBefore(fin)) {
-                reservationsParCreneau.merge(creneau, 1, Integer::sum);
-                creneau = creneau.plusMinutes(30);
-            }
-        }
+    /**
+     * Import en masse (CSV avec en-tête ou tableau JSON) : le corps est lu au fil de l'eau,
+     * sans rappels ni notifications. Renvoie le nombre de lignes importées et les erreurs par ligne.
+     */
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_JSON_VALUE })
+    public Map<String, Object> importerReservations(HttpServletRequest request) throws IOException {
+        ImportReservations.Format format = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? ImportReservations.Format.JSON
+                : ImportReservations.Format.CSV;
+        return importReservations.importer(request.getInputStream(), format);
+    }
 
-        // 3. Identify fully booked slots
-        List<Map<String, LocalDateTime>> creneauxSatures = new ArrayList<>();
-        for (Map.Entry<LocalDateTime, Integer> entry : reservationsParCreneau.entrySet()) {
-            LocalDateTime creneau = entry.getKey();
-            int nbReservations = entry.getValue();
-            int techniciensDisponibles = calculerTechniciensDisponibles(techniciens, creneau);
-            
-            if (techniciensDisponibles > 0 && nbReservations >= techniciensDisponibles) {
-                Map<String, LocalDateTime> slot = new HashMap<>();
-                slot.put("dateDebut", creneau);
-                slot.put("dateFin", creneau.plusMinutes(30));
-                creneauxSatures.add(slot);
-            }
-        }
+    // Fenêtre affichée par défaut par le client de réservation
+    private static final int FENETRE_PAR_DEFAUT_JOURS = 60;
+    private static final int MAX_CRENEAUX_LIBRES = 50;
+    private static final int MAX_VERIFICATIONS = 500;
 
-        // 4. Merge adjacent slots
-        List<Map<String, LocalDateTime>> resultats = fusionnerCreneaux(creneauxSatures);
-        return ResponseEntity.ok(resultats);
+    private LocalDate debutFenetre(LocalDate from) {
+        return from != null ? from : LocalDate.now();
     }
 
-      
-    private int calculerTechniciensDisponibles(List<TechnicienEmploi> techniciens, LocalDateTime creneau) {
-        int disponibles = 0;
-        
-        for (TechnicienEmploi tech : techniciens) {
-            // Vérifier jour de repos
-            if (tech.getJourRepos() != null && 
-                tech.getJourRepos().equals(convertDayOfWeekToJourRepos(creneau.getDayOfWeek()))) {
-                continue;
-            }
-            
-            // Vérifier plage horaire
-            if (tech.getHeureDebut() != null && tech.getHeureFin() != null) {
-                LocalTime heure = creneau.toLocalTime();
-                if (heure.isBefore(tech.getHeureDebut()) || heure.isAfter(tech.getHeureFin())) {
-                    continue;
-                }
-            }
-            
-            disponibles++;
-        }
-        
-        return disponibles;
+    private LocalDate finFenetre(LocalDate from, LocalDate to) {
+        return to != null ? to : debutFenetre(from).plusDays(FENETRE_PAR_DEFAUT_JOURS);
     }
 
-   
-    private List<Map<String, LocalDateTime>> fusionnerCreneaux(List<Map<String, LocalDateTime>> creneaux) {
-        if (creneaux.isEmpty()) return creneaux;
-        
-        // Trier par date de début
-        creneaux.sort(Comparator.comparing(c -> c.get("dateDebut")));
-        
-        List<Map<String, LocalDateTime>> fusionnes = new ArrayList<>();
-        Map<String, LocalDateTime> current = creneaux.get(0);
-        
-        for (int i = 1; i < creneaux.size(); i++) {
-            Map<String, LocalDateTime> next = creneaux.get(i);
-            
-            if (current.get("dateFin").equals(next.get("dateDebut"))) {
-                // Fusionner les créneaux adjacents
-                current.put("dateFin", next.get("dateFin"));
-            } else {
-                fusionnes.add(current);
-                current = next;
-            }
-        }
-        fusionnes.add(current);
-        
-        return fusionnes;
+    @GetMapping("/dates-indisponibles")
+    public ResponseEntity<List<Map<String, LocalDateTime>>> getCreneauxCompletementOccupees(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        List<Map<String, LocalDateTime>> resultats = occupationIndex.getCreneauxSatures(
+                debutFenetre(from), finFenetre(from, to), rosterCapacite::capacite)
+            .stream()
+            .map(creneau -> creerPeriode(creneau.getStartTime(), creneau.getEndTime()))
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(resultats);
     }
 
 
-    // Méthode utilitaire pour convertir DayOfWeek en JourRepos
-    private JourRepos convertDayOfWeekToJourRepos(DayOfWeek dayOfWeek) {
-        switch (dayOfWeek) {
-            case MONDAY: return JourRepos.LUNDI;
-            case TUESDAY: return JourRepos.MARDI;
-            case WEDNESDAY: return JourRepos.MERCREDI;
-            case THURSDAY: return JourRepos.JEUDI;
-            case FRIDAY: return JourRepos.VENDREDI;
-            case SATURDAY: return JourRepos.SAMEDI;
-            case SUNDAY: return JourRepos.DIMANCHE;
-            default: return null;
-        }
-    }
-
     private Map<String, LocalDateTime> creerPeriode(LocalDateTime debut, LocalDateTime fin) {
         Map<String, LocalDateTime> periode = new HashMap<>();
         periode.put("dateDebut", debut);
@@ -271,71 +185,8 @@ public class ReservationController {
     public ResponseEntity<String> updateTechnicienReservation(
             @PathVariable Long reservationId,
             @PathVariable String emailTechnicien) {
-
-        Optional<ReservationEntity> reservationOpt = reservationRepository.findById(reservationId);
-        Optional<TechnicienEmploi> newTechnicienOpt = technicienEmploiRepository.findByEmail(emailTechnicien);
-
-        if (reservationOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("Réservation non trouvée !");
-        }
-
-        if (newTechnicienOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("Nouveau technicien non trouvé !");
-        }
-
-        ReservationEntity reservation = reservationOpt.get();
-        TechnicienEmploi newTechnicien = newTechnicienOpt.get();
-
-        // Récupération de l'ancien technicien
-        Long oldTechnicienId = reservation.getTechnicienId();
-        Optional<TechnicienEmploi> oldTechnicienOpt = (oldTechnicienId != null) 
-                ? technicienEmploiRepository.findById(oldTechnicienId) 
-                : Optional.empty();
-
-        // Mise à jour du technicien affecté à la réservation
-        reservationService.modifierAffectationTechnicien(reservationId, emailTechnicien);
-
-        // Formatage des dates pour la notification
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        String dateDebut = reservation.getDateReservation().format(formatter);
-   
-
-        // Vérifier si la durée extraite est vide (au cas où)
-        String dureeStr = reservation.getDuree().replaceAll("[^0-9hmin]", ""); 
-
-        long dureeHeures = 0;
-        long dureeMinutes = 0;
-
-        // Vérification si la durée contient "h" (heures) ou "min" (minutes)
-        if (dureeStr.contains("h")) {
-            dureeHeures = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les heures
-        } else if (dureeStr.contains("min")) {
-            dureeMinutes = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les minutes
-        }
-
-        // Calcul de la date de fin
-        String dateFin = reservation.getDateReservation()
-                .plusHours(dureeHeures)
-                .plusMinutes(dureeMinutes)
-                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-
-
-        String newTechNotificationMessage = "vous avez une nouvelle réservation "  +
-                " prévue du " + dateDebut + " au " + dateFin + ".";
-
-        Notification newTechNotification = notificationService.createNotification(emailTechnicien, newTechNotificationMessage);
-        messagingTemplate.convertAndSend("/topic/notifications/" + emailTechnicien, newTechNotification);
-
-        
-        if (oldTechnicienOpt.isPresent()) {
-            String oldTechnicienEmail = oldTechnicienOpt.get().getEmail();
-            String oldTechNotificationMessage = "Votre affectation à la réservation " +
-                    " prévue du " + dateDebut + " au " + dateFin + " est  annulée.";
-
-            Notification oldTechNotification = notificationService.createNotification(oldTechnicienEmail, oldTechNotificationMessage);
-            messagingTemplate.convertAndSend("/topic/notifications/" + oldTechnicienEmail, oldTechNotification);
-        }
-
+        // Les techniciens concernés sont notifiés après validation de la transaction
+        reservationService.affecter(new AffectationCommande(reservationId, emailTechnicien, true));
         return ResponseEntity.ok("Technicien modifié avec succès !");
     }
 
@@ -344,60 +195,28 @@ public class ReservationController {
     public ResponseEntity<String> affecterTechnicienParEmail(
             @PathVariable Long reservationId,
             @PathVariable String emailTechnicien) {
+        reservationService.affecter(new AffectationCommande(reservationId, emailTechnicien, false));
+        return ResponseEntity.ok("Technicien affecté avec succès !");
+    }
+    @PostMapping("/affectation-automatique")
+    public ResponseEntity<Map<String, Object>> affecterReservationsDuJour(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(reservationService.affecterReservationsDuJour(date));
+    }
 
-        Optional<TechnicienEmploi> technicienOpt = technicienEmploiRepository.findByEmail(emailTechnicien);
-        Optional<ReservationEntity> reservationOpt = reservationRepository.findById(reservationId);
-
-        if (technicienOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("Technicien non trouvé !");
-        }
-
-        if (reservationOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body("Réservation non trouvée !");
-        }
-
-        TechnicienEmploi technicien = technicienOpt.get();
-        ReservationEntity reservation = reservationOpt.get();
-
-        // Affectation du technicien à la réservation
-        reservationService.affecterTechnicienAReservation(reservationId, technicien.getId());
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
-        String dateDebut = reservation.getDateReservation().format(formatter);
-
-     // Extraction des nombres et des unités (h pour heures, min pour minutes)
-        String dureeStr = reservation.getDuree().replaceAll("[^0-9hmin]", ""); 
-
-        long dureeHeures = 0;
-        long dureeMinutes = 0;
-
-        // Vérification si la durée contient "h" (heures) ou "min" (minutes)
-        if (dureeStr.contains("h")) {
-            dureeHeures = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les heures
-        } else if (dureeStr.contains("min")) {
-            dureeMinutes = Long.parseLong(dureeStr.replaceAll("[^0-9]", "")); // Extraire les minutes
+    @PostMapping("/reaffectation/{emailTechnicien}")
+    public ResponseEntity<Map<String, Object>> reaffecterReservationsTechnicien(
+            @PathVariable String emailTechnicien,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "La date de fin doit suivre la date de début");
         }
-
-        // Calcul de la date de fin
-        String dateFin = reservation.getDateReservation()
-                .plusHours(dureeHeures)
-                .plusMinutes(dureeMinutes)
-                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
-
-        // Message de notification avec date de début et de fin
-        String notificationMessage = "Vous avez été affecté à la réservation "  +
-                "planifiée de " + reservation.getDateReservation().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) +
-                " à" + dateFin + ".";
-
-
-        // Enregistrement de la notification en base de données
-        Notification notification = notificationService.createNotification(emailTechnicien, notificationMessage);
-
-        // Envoi de la notification en temps réel via WebSocket
-        messagingTemplate.convertAndSend("/topic/notifications/" + emailTechnicien, notification);
-
-        return ResponseEntity.ok("Technicien affecté avec succès !");
+        // Remplaçants et technicien indisponible sont notifiés après le commit
+        Map<String, Object> rapport = reservationService.reaffecterReservationsTechnicien(emailTechnicien, from, to);
+        return ResponseEntity.ok(rapport);
     }
+
     @GetMapping("/affectations")
     public Map<Long, Map<String, Object>> getAllAffectations() {
         List<AffectationTechnicien> affectations = affectationTechnicienRepository.findAll();
@@ -519,12 +338,57 @@ public class ReservationController {
     }
 
     @GetMapping("/indisponibles")
-    public ResponseEntity<List<LocalDateTime>> getDatesIndisponibles() {
-        return ResponseEntity.ok(reservationService.getDatesIndisponibles());
+    public ResponseEntity<List<LocalDateTime>> getDatesIndisponibles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reservationService.getDatesIndisponibles(debutFenetre(from), finFenetre(from, to)));
     }
     @GetMapping("/creneaux-indisponibles")
-    public ResponseEntity<List<Map<String, LocalDateTime>>> getCreneauxIndisponibles() {
-        return ResponseEntity.ok(reservationService.getCreneauxIndisponiblesComplets());
+    public ResponseEntity<List<Map<String, LocalDateTime>>> getCreneauxIndisponibles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LocalDate du = debutFenetre(from);
+        LocalDate au = finFenetre(from, to);
+        // La fenêtre par défaut glisse chaque jour : elle fait partie de l'ETag
+        String etag = versionsDonnees.etag(du + "_" + au,
+            VersionsDonnees.Agregat.RESERVATIONS, VersionsDonnees.Agregat.ROSTER);
+        if (versionsDonnees.nonModifie(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(reservationService.getCreneauxIndisponiblesComplets(du, au));
+    }
+
+    @GetMapping("/creneaux-libres")
+    public ResponseEntity<?> getProchainsCreneauxLibres(
+            @RequestParam Long serviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(defaultValue = "5") int count) {
+        if (count < 1 || count > MAX_CRENEAUX_LIBRES) {
+            return ResponseEntity.badRequest().body("Le nombre de créneaux doit être compris entre 1 et " + MAX_CRENEAUX_LIBRES);
+        }
+        LocalDateTime aPartirDe = from != null && from.isAfter(LocalDateTime.now()) ? from : LocalDateTime.now();
+        return ResponseEntity.ok(reservationService.getProchainsCreneauxLibres(serviceId, aPartirDe, count));
+    }
+
+    @PostMapping("/retenues")
+    public ResponseEntity<Map<String, Object>> retenirCreneau(@RequestBody VerificationCreneau creneau,
+                                                              Authentication authentication) {
+        return ResponseEntity.ok(reservationService.retenirCreneau(creneau.serviceId(), creneau.dateTime(), authentication));
+    }
+
+    @DeleteMapping("/retenues/{retenueId}")
+    public ResponseEntity<Void> libererRetenue(@PathVariable String retenueId, Authentication authentication) {
+        reservationService.libererRetenue(retenueId, authentication);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/faisabilite")
+    public ResponseEntity<?> verifierFaisabilite(@RequestBody List<VerificationCreneau> verifications) {
+        if (verifications == null || verifications.isEmpty() || verifications.size() > MAX_VERIFICATIONS) {
+            return ResponseEntity.badRequest().body("Le nombre de vérifications doit être compris entre 1 et " + MAX_VERIFICATIONS);
+        }
+        return ResponseEntity.ok(reservationService.verifierFaisabilite(verifications));
     }
 
     @PreAuthorize("hasRole('USER')")
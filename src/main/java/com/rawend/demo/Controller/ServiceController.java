@@ -3,23 +3,22 @@ package com.rawend.demo.Controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.rawend.demo.entity.PromotionEntity;
 import com.rawend.demo.entity.ServiceEntity;
-import com.rawend.demo.entity.TypeReduction;
 import com.rawend.demo.entity.User;
 import com.rawend.demo.services.JWTService;
 import com.rawend.demo.services.ServiceService;
+import com.rawend.demo.services.TarifsServices;
+import com.rawend.demo.services.VersionsDonnees;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +36,10 @@ public class ServiceController {
     private JWTService jwtService;  
     @Autowired
     private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+    @Autowired
+    private TarifsServices tarifsServices;
     
     @GetMapping("/admin")
     public ResponseEntity<List<Map<String, Object>>> getAllServicesForAdmin() {
@@ -61,7 +64,15 @@ public class ServiceController {
         return ResponseEntity.ok(services);
     }
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> getAllServices() {
+    public ResponseEntity<List<Map<String, Object>>> getAllServices(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Le prix réduit dépend aussi du jour courant (promotion active ou non)
+        String etag = versionsDonnees.etag(LocalDate.now(),
+            VersionsDonnees.Agregat.CATALOGUE, VersionsDonnees.Agregat.PROMOTIONS);
+        if (versionsDonnees.nonModifie(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         List<Map<String, Object>> services = serviceService.getAllServices().stream()
             .map(service -> {
                 Map<String, Object> filteredService = new HashMap<>();
@@ -73,64 +84,19 @@ public class ServiceController {
                 filteredService.put("image", service.getImage());
                 filteredService.put("imageName", service.getImageName());
 
-                PromotionEntity promo = service.getPromotion();
-                if (promo != null) {
-                    // Vérifier si un code promo est présent (supposons qu'il existe une méthode getCodePromo())
-                    if (promo.getCodePromo() == null || promo.getCodePromo().isEmpty()) {
-                        LocalDate today = LocalDate.now();
-                        LocalDateTime startOfDay = today.atStartOfDay(); // Début de la journée
-                        LocalDateTime endOfDay = today.atTime(23, 59, 59); // Fin de la journée
-
-                        LocalDateTime promoStart = convertToLocalDateTime(promo.getDateDebut()).withHour(0).withMinute(0).withSecond(0); // Début de la promotion
-                        LocalDateTime promoEnd = convertToLocalDateTime(promo.getDateFin()).withHour(23).withMinute(59).withSecond(59); // Fin de la promotion
-
-                        if (!promoStart.isAfter(endOfDay) && !promoEnd.isBefore(startOfDay)) {
-                            // Promotion active, afficher le prix réduit
-                            Double discountedPrice = calculerPrixAvecReduction(service, promo);
-                            String promotionValue;
-
-                            if (promo.getTypeReduction() == TypeReduction.POURCENTAGE) {
-                                promotionValue = "- " + (promo.getValeurReduction() % 1 == 0 
-                                    ? String.format("%.0f", promo.getValeurReduction()) 
-                                    : String.valueOf(promo.getValeurReduction())) + "% ";
-                            } else if (promo.getTypeReduction() == TypeReduction.MONTANT_FIXE) {
-                                promotionValue = "- " + (promo.getValeurReduction() % 1 == 0 
-                                    ? String.format("%.0f", promo.getValeurReduction()) 
-                                    : String.valueOf(promo.getValeurReduction())) + "DT";
-                            } else {
-                                promotionValue = "Aucune promotion";
-                            }
-
-                            filteredService.put("promotion", promotionValue);
-                            filteredService.put("discountedPrice", discountedPrice);
-                        }
-                    }
+                // Promotion automatique (sans code) active aujourd'hui : prix réduit affiché
+                TarifsServices.Tarif tarif = tarifsServices.tarif(service.getId());
+                if (tarif != null && tarif.remise() != null && !tarif.remise().avecCode()) {
+                    filteredService.put("promotion", tarif.remise().libelle());
+                    filteredService.put("discountedPrice", tarif.prixRemise());
                 }
                 return filteredService;
             })
             .collect(Collectors.toList());
 
-        return ResponseEntity.ok(services);
-    }
-
-    // Méthode pour convertir une Date en LocalDateTime
-    private LocalDateTime convertToLocalDateTime(Date date) {
-        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        return ResponseEntity.ok().eTag(etag).body(services);
     }
-   
-
-    private double calculerPrixAvecReduction(ServiceEntity service, PromotionEntity promo) {
-        double prixInitial = service.getPrix();
 
-        switch (promo.getTypeReduction()) {
-            case POURCENTAGE:
-                return prixInitial * (1 - promo.getValeurReduction() / 100);
-            case MONTANT_FIXE:
-                return prixInitial - promo.getValeurReduction();
-            default:
-                return prixInitial;
-        }
-    }
 
 
     private LocalDate convertToLocalDate(Date date) {
@@ -173,6 +139,7 @@ public class ServiceController {
 
        
         ServiceEntity savedService = serviceService.saveService(service);
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.CATALOGUE);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(savedService);
     }
@@ -206,6 +173,7 @@ public class ServiceController {
 
      
         ServiceEntity updatedService = serviceService.saveService(service); 
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.CATALOGUE);
       
         return ResponseEntity.ok(updatedService);
     }
@@ -214,6 +182,7 @@ public class ServiceController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteService(@PathVariable Long id) {
         serviceService.deleteService(id);
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.CATALOGUE);
         return ResponseEntity.noContent().build();
     }
     @GetMapping("/titres")
@@ -246,15 +215,10 @@ public class ServiceController {
             // Récupération du téléphone de l'utilisateur depuis la base de données
             String phone = getUserPhoneByEmail(email);
 
-            // Calcul du prix avec ou sans réduction
-            Double prixFinal = service.getPrix();
-            PromotionEntity promo = service.getPromotion();
-            if (promo != null) {
-                if (promo.getTypeReduction() == TypeReduction.POURCENTAGE) {
-                    prixFinal = service.getPrix() * (1 - promo.getValeurReduction() / 100);
-                } else if (promo.getTypeReduction() == TypeReduction.MONTANT_FIXE) {
-                    prixFinal = service.getPrix() - promo.getValeurReduction();
-                }
+            // Prix du jour, promotion automatique comprise
+            Double prixFinal = tarifsServices.prix(id, null);
+            if (prixFinal == null) {
+                prixFinal = service.getPrix();
             }
 
             // Construction de la réponse
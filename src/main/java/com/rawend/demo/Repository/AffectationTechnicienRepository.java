@@ -2,6 +2,7 @@ package com.rawend.demo.Repository;
 
 
 
+import com.rawend.demo.dto.PlageAffectation;
 import com.rawend.demo.entity.AffectationTechnicien;
 import com.rawend.demo.entity.TechnicienEmploi;
 
@@ -46,4 +47,18 @@ public interface AffectationTechnicienRepository extends JpaRepository<Affectati
     
    
     boolean existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(Long technicienId, LocalDateTime dateFin, LocalDateTime dateDebut);
+
+    // Affectations chevauchant [debut, fin[, tous techniciens confondus
+    @Query("SELECT a.reservation.id AS reservationId, a.technicien.id AS technicienId, a.dateDebut AS dateDebut, "
+            + "a.dateFin AS dateFin, a.reservation.latitude AS latitude, a.reservation.longitude AS longitude "
+            + "FROM AffectationTechnicien a WHERE a.dateDebut < :fin AND a.dateFin > :debut")
+    List<PlageAffectation> findPlagesEntre(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT a.reservation.id AS reservationId, a.technicien.id AS technicienId, a.dateDebut AS dateDebut, "
+            + "a.dateFin AS dateFin, a.reservation.latitude AS latitude, a.reservation.longitude AS longitude "
+            + "FROM AffectationTechnicien a")
+    List<PlageAffectation> findAllPlages();
+
+    List<AffectationTechnicien> findByTechnicienIdAndDateDebutGreaterThanEqualAndDateDebutLessThanOrderByDateDebut(
+            Long technicienId, LocalDateTime debut, LocalDateTime fin);
 }
\ No newline at end of file
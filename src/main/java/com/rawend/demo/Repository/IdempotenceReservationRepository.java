@@ -0,0 +1,19 @@
+package com.rawend.demo.Repository;
+
+import com.rawend.demo.entity.IdempotenceReservation;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IdempotenceReservationRepository extends JpaRepository<IdempotenceReservation, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotenceReservation i WHERE i.dateCreation < :limite")
+    int supprimerAvant(@Param("limite") LocalDateTime limite);
+}
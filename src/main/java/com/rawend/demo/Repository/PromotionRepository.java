@@ -19,6 +19,10 @@ public interface PromotionRepository extends JpaRepository<PromotionEntity, Long
     List<PromotionEntity> findByServices_Id(Long serviceId);
     @Query("SELECT DISTINCT p FROM PromotionEntity p LEFT JOIN FETCH p.services")
     List<PromotionEntity> findAllWithServices();
+
+    // Filtre de Bloom des codes (CodesPromo)
+    @Query("SELECT p.codePromo FROM PromotionEntity p WHERE p.codePromo IS NOT NULL")
+    List<String> findAllCodesPromo();
   
 
 }
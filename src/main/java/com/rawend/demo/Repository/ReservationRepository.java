@@ -1,6 +1,8 @@
 package com.rawend.demo.Repository;
 
+import com.rawend.demo.dto.CreneauReservation;
 import com.rawend.demo.entity.ReservationEntity;
+import com.rawend.demo.entity.ReservationStatus;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,6 +18,17 @@ public interface ReservationRepository extends JpaRepository<ReservationEntity,
 	List<ReservationEntity> findByUserEmailOrderByDateCreationDesc(@Param("email") String email);
 	// Dans ReservationRepository.java
 	Optional<ReservationEntity> findByIdAndUserEmail(Long id, String email);
+
+	// Réservations commençant dans [debut, fin[ (index idx_reservation_date_reservation)
+	@Query("SELECT r.id AS id, r.dateReservation AS dateReservation, r.duree AS duree FROM ReservationEntity r "
+			+ "WHERE r.dateReservation >= :debut AND r.dateReservation < :fin ORDER BY r.dateReservation")
+	List<CreneauReservation> findCreneauxEntre(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+	@Query("SELECT r.id AS id, r.dateReservation AS dateReservation, r.duree AS duree FROM ReservationEntity r")
+	List<CreneauReservation> findAllCreneaux();
+
+	List<ReservationEntity> findByStatusAndDateReservationGreaterThanEqualAndDateReservationLessThanOrderByDateReservation(
+			ReservationStatus status, LocalDateTime debut, LocalDateTime fin);
 	}
 
 
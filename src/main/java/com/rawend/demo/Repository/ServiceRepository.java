@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.rawend.demo.dto.TarifService;
 import com.rawend.demo.entity.ServiceEntity;
 
 public interface ServiceRepository extends JpaRepository<ServiceEntity, Long> {
@@ -21,4 +22,11 @@ public interface ServiceRepository extends JpaRepository<ServiceEntity, Long> {
 
 	       @Query("SELECT s FROM ServiceEntity s WHERE s.promotion.id = :promotionId")
 	       List<ServiceEntity> findByPromotionId(@Param("promotionId") Long promotionId);
+
+	       // Grille des prix (TarifsServices)
+	       @Query("SELECT s.id AS serviceId, s.prix AS prix, p.id AS promotionId, p.codePromo AS codePromo, "
+	            + "p.valeurReduction AS valeurReduction, p.actif AS actif, p.dateDebut AS dateDebut, "
+	            + "p.dateFin AS dateFin, p.typeReduction AS typeReduction "
+	            + "FROM ServiceEntity s LEFT JOIN s.promotion p")
+	       List<TarifService> findAllTarifs();
 }
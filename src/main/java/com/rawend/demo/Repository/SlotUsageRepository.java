@@ -0,0 +1,27 @@
+package com.rawend.demo.Repository;
+
+import com.rawend.demo.entity.SlotUsage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface SlotUsageRepository extends JpaRepository<SlotUsage, LocalDate> {
+
+    // Jours de [du, au[, une ligne par jour
+    List<SlotUsage> findByJourGreaterThanEqualAndJourLessThanOrderByJour(LocalDate du, LocalDate au);
+
+    // Crée la ligne du jour si besoin et la verrouille dans les deux cas, jusqu'à la fin de la transaction
+    @Modifying
+    @Query(value = "INSERT INTO slot_usage (jour, occupation) VALUES (:jour, :vide) "
+                 + "ON CONFLICT (jour) DO UPDATE SET occupation = slot_usage.occupation", nativeQuery = true)
+    void verrouillerJour(@Param("jour") LocalDate jour, @Param("vide") byte[] vide);
+
+    @Modifying
+    @Query(value = "UPDATE slot_usage SET occupation = :occupation WHERE jour = :jour", nativeQuery = true)
+    void mettreAJour(@Param("jour") LocalDate jour, @Param("occupation") byte[] occupation);
+}
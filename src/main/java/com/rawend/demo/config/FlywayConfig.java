@@ -0,0 +1,28 @@
+package com.rawend.demo.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Les tables sont encore créées par Hibernate ({@code ddl-auto=update}) : les migrations
+ * Flyway (index, évolutions du schéma) sont donc appliquées une fois Hibernate démarré,
+ * et non avant comme le fait Spring Boot par défaut.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy migrationDifferee() {
+        return flyway -> { };
+    }
+
+    @Bean
+    public InitializingBean migrationsApresHibernate(Flyway flyway, EntityManagerFactory entityManagerFactory) {
+        return flyway::migrate;
+    }
+}
@@ -43,8 +43,13 @@ public class SecurityConfiguration {
             .requestMatchers(HttpMethod.DELETE, "/api/technicien/**").hasAuthority("ADMIN") 
             .requestMatchers(HttpMethod.GET, "/api/technicien/**").hasAnyAuthority("ADMIN")
             .requestMatchers(HttpMethod.POST, "/api/technicien/**").hasAnyAuthority("ADMIN")
+            .requestMatchers(HttpMethod.GET, "/emplois/techniciens/disponibilites").hasAuthority("ADMIN")
        
             .requestMatchers(HttpMethod.PUT, "/reservations/*/terminer").hasAuthority("TECHNICIEN")
+            .requestMatchers("/actuator/**").hasAuthority("ADMIN")
+            .requestMatchers(HttpMethod.POST, "/reservations/import").hasAuthority("ADMIN")
+            .requestMatchers(HttpMethod.POST, "/reservations/affectation-automatique").hasAuthority("ADMIN")
+            .requestMatchers(HttpMethod.POST, "/reservations/reaffectation/**").hasAuthority("ADMIN")
             .requestMatchers(HttpMethod.POST, "/api/promotions/apply").hasAnyAuthority("USER")
 
                /* .requestMatchers(HttpMethod.GET, "/api/promotions/servicesWithPromotions").hasAnyRole("USER", "ADMIN")*/
@@ -0,0 +1,7 @@
+package com.rawend.demo.dto;
+
+public record AffectationCommande(
+    Long reservationId,       // Réservation à affecter
+    String emailTechnicien,   // Technicien retenu
+    boolean remplacement      // true : remplace le technicien déjà affecté (l'affectation doit exister)
+) {}
@@ -0,0 +1,13 @@
+package com.rawend.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection légère d'une réservation pour les calculs de disponibilité :
+ * seules les colonnes utiles sont lues, sans charger l'utilisateur ni le service.
+ */
+public interface CreneauReservation {
+    Long getId();
+    LocalDateTime getDateReservation();
+    String getDuree();
+}
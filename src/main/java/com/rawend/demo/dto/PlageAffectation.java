@@ -0,0 +1,16 @@
+package com.rawend.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection d'une affectation : technicien et période occupée, sans charger
+ * la réservation ni l'emploi du temps associés.
+ */
+public interface PlageAffectation {
+    Long getReservationId();
+    Long getTechnicienId();
+    LocalDateTime getDateDebut();
+    LocalDateTime getDateFin();
+    Double getLatitude();
+    Double getLongitude();
+}
@@ -16,5 +16,6 @@ public record ReservationRequest(
 
     String titreService,      // Titre du service
     String email,             // Email de l'utilisateur
-    String phone              // Téléphone de l'utilisateur
+    String phone,             // Téléphone de l'utilisateur
+    String retenueId          // Retenue de créneau obtenue avant le paiement (facultative)
 ) {}
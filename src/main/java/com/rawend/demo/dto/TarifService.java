@@ -0,0 +1,21 @@
+package com.rawend.demo.dto;
+
+import java.util.Date;
+
+import com.rawend.demo.entity.TypeReduction;
+
+/**
+ * Projection d'un service et de sa promotion pour la grille des prix : ni l'image du
+ * service ni les avis ne sont chargés.
+ */
+public interface TarifService {
+    Long getServiceId();
+    Double getPrix();
+    Long getPromotionId();
+    String getCodePromo();
+    Double getValeurReduction();
+    Boolean getActif();
+    Date getDateDebut();
+    Date getDateFin();
+    TypeReduction getTypeReduction();
+}
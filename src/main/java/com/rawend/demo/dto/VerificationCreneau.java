@@ -0,0 +1,8 @@
+package com.rawend.demo.dto;
+
+import java.time.LocalDateTime;
+
+public record VerificationCreneau(
+    Long serviceId,           // ID du service à réserver
+    LocalDateTime dateTime    // Début envisagé pour la prestation
+) {}
@@ -0,0 +1,48 @@
+package com.rawend.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réponse d'une création de réservation, conservée sous la clé {@code Idempotency-Key}
+ * envoyée par le client pour être rejouée telle quelle en cas de nouvelle tentative.
+ */
+@Entity
+@Table(name = "idempotence_reservation")
+@Getter
+@Setter
+public class IdempotenceReservation {
+
+    @Id
+    @Column(length = 255)
+    private String cle;
+
+    @Column(nullable = false)
+    private String userEmail;
+
+    @Column(nullable = false)
+    private Long reservationId;
+
+    // Réponse sérialisée en JSON
+    @Column(nullable = false, columnDefinition = "text")
+    private String reponse;
+
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+
+    public IdempotenceReservation() {}
+
+    public IdempotenceReservation(String cle, String userEmail, Long reservationId, String reponse, LocalDateTime dateCreation) {
+        this.cle = cle;
+        this.userEmail = userEmail;
+        this.reservationId = reservationId;
+        this.reponse = reponse;
+        this.dateCreation = dateCreation;
+    }
+}
@@ -29,6 +29,9 @@ public class ReservationEntity {
     private ModePaiement modePaiement;  
 
     private String localisation;  
+    // Coordonnées lues dans localisation ("latitude,longitude"), nulles si illisibles
+    private Double latitude;
+    private Double longitude;
     
     private LocalDateTime dateReservation;  
     private LocalDateTime dateCreation;  
@@ -0,0 +1,34 @@
+package com.rawend.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Occupation matérialisée d'une journée : un compteur de réservations (sur un octet)
+ * pour chacun des 48 créneaux de 30 minutes.
+ */
+@Entity
+@Table(name = "slot_usage")
+@Getter
+@Setter
+public class SlotUsage {
+
+    @Id
+    private LocalDate jour;
+
+    @Column(nullable = false, length = 48)
+    private byte[] occupation;
+
+    public SlotUsage() {}
+
+    public SlotUsage(LocalDate jour, byte[] occupation) {
+        this.jour = jour;
+        this.occupation = occupation;
+    }
+}
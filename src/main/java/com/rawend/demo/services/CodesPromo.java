@@ -0,0 +1,187 @@
+package com.rawend.demo.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.rawend.demo.Repository.PromotionRepository;
+import com.rawend.demo.entity.PromotionEntity;
+import com.rawend.demo.entity.TypeReduction;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Résolution des codes promo sans requête à chaque appel : un filtre de Bloom des codes
+ * existants écarte la plupart des codes inventés, et un cache borné garde les codes déjà
+ * résolus (les codes inconnus quelques secondes seulement). Tout est remis à zéro quand
+ * la version {@link VersionsDonnees.Agregat#PROMOTIONS} change, c'est-à-dire après chaque
+ * création, modification ou suppression de promotion.
+ */
+@Slf4j
+@Service
+public class CodesPromo {
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    @Value("${promotions.codes.max-en-memoire:1000}")
+    private int maxEnMemoire;
+
+    @Value("${promotions.codes.negatif-secondes:60}")
+    private long negatifSecondes;
+
+    // Copie des champs utiles : l'entité en cache n'est jamais rendue telle quelle
+    private record Promo(Long id, String codePromo, Double valeurReduction, Boolean actif,
+                         Date dateDebut, Date dateFin, TypeReduction typeReduction) {
+    }
+
+    /** @param promo {@code null} pour un code inconnu, valable jusqu'à {@code expiration} */
+    private record Entree(Promo promo, LocalDateTime expiration) {
+    }
+
+    private record Etat(long version, FiltreBloom filtre, LinkedHashMap<String, Entree> resolus) {
+    }
+
+    private volatile Etat etat;
+
+    /**
+     * @return une copie détachée de la promotion portant ce code (sans ses services), active
+     *         ou non, ou {@code null} si le code n'existe pas
+     */
+    public PromotionEntity trouver(String codePromo) {
+        if (codePromo == null || codePromo.isEmpty()) {
+            return null;
+        }
+        Etat courant = etatAJour();
+        if (!courant.filtre().peutContenir(codePromo)) {
+            return null;
+        }
+
+        Entree entree;
+        synchronized (courant.resolus()) {
+            entree = courant.resolus().get(codePromo);
+        }
+        if (entree == null || (entree.expiration() != null && entree.expiration().isBefore(LocalDateTime.now()))) {
+            Promo promo = promotionRepository.findByCodePromo(codePromo).map(CodesPromo::copier).orElse(null);
+            entree = new Entree(promo, promo == null ? LocalDateTime.now().plusSeconds(negatifSecondes) : null);
+            synchronized (courant.resolus()) {
+                courant.resolus().put(codePromo, entree);
+            }
+        }
+        return entree.promo() != null ? versEntite(entree.promo()) : null;
+    }
+
+    // Codes créés par une autre instance : visibles au plus tard à la reconstruction suivante
+    @Scheduled(fixedDelay = 300_000)
+    public void reconstruire() {
+        etat = charger(versionsDonnees.version(VersionsDonnees.Agregat.PROMOTIONS));
+    }
+
+    private Etat etatAJour() {
+        Etat courant = etat;
+        long version = versionsDonnees.version(VersionsDonnees.Agregat.PROMOTIONS);
+        if (courant == null || courant.version() != version) {
+            synchronized (this) {
+                courant = etat;
+                if (courant == null || courant.version() != version) {
+                    courant = charger(version);
+                    etat = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    private Etat charger(long version) {
+        List<String> codes = promotionRepository.findAllCodesPromo();
+        FiltreBloom filtre = new FiltreBloom(codes.size());
+        codes.forEach(filtre::ajouter);
+        log.debug("Filtre des codes promo reconstruit : {} codes", codes.size());
+
+        LinkedHashMap<String, Entree> resolus = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                return size() > maxEnMemoire;
+            }
+        };
+        return new Etat(version, filtre, resolus);
+    }
+
+    private static Promo copier(PromotionEntity promo) {
+        return new Promo(promo.getId(), promo.getCodePromo(), promo.getValeurReduction(), promo.getActif(),
+            promo.getDateDebut(), promo.getDateFin(), promo.getTypeReduction());
+    }
+
+    private static PromotionEntity versEntite(Promo promo) {
+        PromotionEntity entite = new PromotionEntity();
+        entite.setId(promo.id());
+        entite.setCodePromo(promo.codePromo());
+        entite.setValeurReduction(promo.valeurReduction());
+        entite.setActif(promo.actif());
+        entite.setDateDebut(promo.dateDebut() != null ? (Date) promo.dateDebut().clone() : null);
+        entite.setDateFin(promo.dateFin() != null ? (Date) promo.dateFin().clone() : null);
+        entite.setTypeReduction(promo.typeReduction());
+        return entite;
+    }
+
+    /**
+     * Filtre de Bloom dimensionné pour environ 1 % de faux positifs : « non » est certain,
+     * « peut-être » demande une lecture.
+     */
+    static final class FiltreBloom {
+
+        private final BitSet bits;
+        private final int taille;
+        private final int nbHachages;
+
+        FiltreBloom(int nbElements) {
+            int n = Math.max(nbElements, 16);
+            this.taille = (int) Math.ceil(-n * Math.log(0.01) / (Math.log(2) * Math.log(2)));
+            this.nbHachages = Math.max(1, (int) Math.round((double) taille / n * Math.log(2)));
+            this.bits = new BitSet(taille);
+        }
+
+        void ajouter(String valeur) {
+            long h = hacher(valeur);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32);
+            for (int i = 0; i < nbHachages; i++) {
+                bits.set(Math.floorMod(h1 + i * h2, taille));
+            }
+        }
+
+        boolean peutContenir(String valeur) {
+            long h = hacher(valeur);
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32);
+            for (int i = 0; i < nbHachages; i++) {
+                if (!bits.get(Math.floorMod(h1 + i * h2, taille))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a 64 bits sur l'UTF-8, moitiés combinées en double hachage
+        private static long hacher(String valeur) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : valeur.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b & 0xFF;
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+    }
+}
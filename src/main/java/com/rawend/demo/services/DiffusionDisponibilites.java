@@ -0,0 +1,134 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pousse sur {@value #TOPIC} les créneaux dont la saturation a changé, pour que les
+ * clients de réservation n'aient plus à interroger les endpoints de disponibilité.
+ *
+ * Les jours touchés par une écriture sont marqués après le commit, puis diffusés par lot :
+ * une rafale de réservations sur la même journée ne produit qu'un seul message.
+ */
+@Slf4j
+@Service
+public class DiffusionDisponibilites {
+
+    public static final String TOPIC = "/topic/disponibilites";
+
+    private static final long DELAI_REGROUPEMENT_MS = 1000;
+
+    @Autowired
+    private OccupationIndex occupationIndex;
+
+    @Autowired
+    private RosterCapacite rosterCapacite;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    // Dernier masque de saturation connu des clients pour chaque jour (bit i = créneau i)
+    private final Map<LocalDate, Long> etatsPublies = new ConcurrentHashMap<>();
+
+    private final Set<LocalDate> joursModifies = ConcurrentHashMap.newKeySet();
+
+    /**
+     * À appeler avant de mettre à jour {@link OccupationIndex} : mémorise l'état de départ des
+     * jours couverts par [debut, fin[ puis les marque à diffuser une fois la transaction validée.
+     */
+    public void signaler(LocalDateTime debut, LocalDateTime fin) {
+        if (debut == null) {
+            return;
+        }
+        List<LocalDate> jours = memoriser(debut, fin);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    joursModifies.addAll(jours);
+                }
+            });
+        } else {
+            joursModifies.addAll(jours);
+        }
+    }
+
+    /**
+     * Pour une modification hors transaction (retenues) : l'état de départ est mémorisé,
+     * la modification appliquée, et les jours ne sont marqués qu'ensuite. Une diffusion qui
+     * passerait entre les deux ne peut donc pas consommer la marque avant le changement.
+     *
+     * @return le résultat de {@code modification}
+     */
+    public boolean modifier(LocalDateTime debut, LocalDateTime fin, BooleanSupplier modification) {
+        List<LocalDate> jours = memoriser(debut, fin);
+        boolean resultat = modification.getAsBoolean();
+        joursModifies.addAll(jours);
+        return resultat;
+    }
+
+    private List<LocalDate> memoriser(LocalDateTime debut, LocalDateTime fin) {
+        List<LocalDate> jours = new ArrayList<>();
+        LocalDate dernierJour = fin != null && fin.isAfter(debut) ? fin.minusNanos(1).toLocalDate() : debut.toLocalDate();
+        for (LocalDate jour = debut.toLocalDate(); !jour.isAfter(dernierJour); jour = jour.plusDays(1)) {
+            etatsPublies.computeIfAbsent(jour, j -> occupationIndex.getMasqueSatures(j, rosterCapacite::capacite));
+            jours.add(jour);
+        }
+        return jours;
+    }
+
+    @Scheduled(fixedDelay = DELAI_REGROUPEMENT_MS)
+    public void diffuser() {
+        LocalDate aujourdhui = LocalDate.now();
+        etatsPublies.keySet().removeIf(jour -> jour.isBefore(aujourdhui));
+
+        Iterator<LocalDate> iterator = joursModifies.iterator();
+        while (iterator.hasNext()) {
+            LocalDate jour = iterator.next();
+            iterator.remove();
+
+            long nouveau = occupationIndex.getMasqueSatures(jour, rosterCapacite::capacite);
+            Long ancien = etatsPublies.put(jour, nouveau);
+            long changes = (ancien == null ? 0L : ancien) ^ nouveau;
+            if (changes == 0L || jour.isBefore(aujourdhui)) {
+                continue;
+            }
+
+            Map<String, Object> message = new HashMap<>();
+            message.put("jour", jour);
+            message.put("satures", creneaux(jour, changes & nouveau));
+            message.put("liberes", creneaux(jour, changes & ~nouveau));
+            messagingTemplate.convertAndSend(TOPIC, message);
+            log.debug("Disponibilités du {} diffusées", jour);
+        }
+    }
+
+    private static List<LocalDateTime> creneaux(LocalDate jour, long masque) {
+        List<LocalDateTime> debuts = new ArrayList<>();
+        long premier = jour.toEpochDay() * OccupationIndex.CRENEAUX_PAR_JOUR;
+        for (int i = 0; i < OccupationIndex.CRENEAUX_PAR_JOUR; i++) {
+            if ((masque & (1L << i)) != 0) {
+                debuts.add(SaturationEngine.debutCreneau(premier + i));
+            }
+        }
+        return debuts;
+    }
+}
@@ -4,11 +4,14 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -16,6 +19,7 @@ import org.springframework.stereotype.Service;
 import com.rawend.demo.Repository.AffectationTechnicienRepository;
 import com.rawend.demo.Repository.ReservationRepository;
 import com.rawend.demo.Repository.TechnicienEmploiRepository;
+import com.rawend.demo.dto.PlageAffectation;
 import com.rawend.demo.entity.AffectationTechnicien;
 import com.rawend.demo.entity.DisponibiliteDTO;
 import com.rawend.demo.entity.JourRepos;
@@ -24,6 +28,13 @@ import com.rawend.demo.entity.TechnicienEmploi;
 @Service
 public class DisponibiliteService {
 
+    private static final int MINUTES_PAR_CRENEAU = OccupationIndex.MINUTES_PAR_CRENEAU;
+    private static final int CRENEAUX_PAR_JOUR = OccupationIndex.CRENEAUX_PAR_JOUR;
+
+    public static final char REPOS = 'R';
+    public static final char LIBRE = 'L';
+    public static final char OCCUPE = 'O';
+
     @Autowired
     private TechnicienEmploiRepository technicienEmploiRepository;
 
@@ -83,6 +94,89 @@ public class DisponibiliteService {
         return disponibilites;
     }
 
+    /**
+     * Tableau de bord de dispatch : pour chaque technicien, l'état de chaque créneau de 30 minutes
+     * entre {@code du} (inclus) et {@code au} (exclu), encodé par plages ("16R4L2O" = 16 créneaux
+     * de repos, 4 libres puis 2 occupés). Les affectations sont lues en une seule requête, puis
+     * chaque technicien est calculé en parallèle.
+     */
+    public Map<String, Object> getMatriceDisponibilites(LocalDate du, LocalDate au) {
+        LocalDateTime debut = du.atStartOfDay();
+        LocalDateTime fin = au.atStartOfDay();
+        int nombreJours = (int) ChronoUnit.DAYS.between(du, au);
+
+        List<TechnicienEmploi> techniciens = technicienEmploiRepository.findAll();
+        Map<Long, List<PlageAffectation>> plagesParTechnicien = affectationTechnicienRepository.findPlagesEntre(debut, fin)
+                .stream()
+                .collect(Collectors.groupingBy(PlageAffectation::getTechnicienId));
+
+        List<Map<String, Object>> lignes = techniciens.parallelStream()
+                .map(technicien -> {
+                    char[] etats = calculerEtats(technicien, du, nombreJours,
+                            plagesParTechnicien.getOrDefault(technicien.getId(), List.of()));
+
+                    Map<String, Object> ligne = new HashMap<>();
+                    ligne.put("technicienId", technicien.getId());
+                    ligne.put("email", technicien.getEmail());
+                    ligne.put("username", technicien.getUsername());
+                    ligne.put("disponibilites", encoderPlages(etats));
+                    return ligne;
+                })
+                .collect(Collectors.toList());
+
+        Map<String, Object> matrice = new HashMap<>();
+        matrice.put("debut", debut);
+        matrice.put("fin", fin);
+        matrice.put("minutesParCreneau", MINUTES_PAR_CRENEAU);
+        matrice.put("techniciens", lignes);
+        return matrice;
+    }
+
+    private char[] calculerEtats(TechnicienEmploi technicien, LocalDate du, int nombreJours, List<PlageAffectation> plages) {
+        char[] etats = new char[nombreJours * CRENEAUX_PAR_JOUR];
+
+        int debutTravail = technicien.getHeureDebut() != null ? technicien.getHeureDebut().toSecondOfDay() / 60 : 0;
+        int finTravail = technicien.getHeureFin() != null ? technicien.getHeureFin().toSecondOfDay() / 60 : 24 * 60;
+
+        for (int jour = 0; jour < nombreJours; jour++) {
+            // JourRepos suit le même ordre que DayOfWeek (LUNDI .. DIMANCHE)
+            JourRepos jourSemaine = JourRepos.values()[du.plusDays(jour).getDayOfWeek().getValue() - 1];
+            boolean repos = jourSemaine == technicien.getJourRepos();
+
+            for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+                int minute = i * MINUTES_PAR_CRENEAU;
+                boolean travaille = !repos && minute >= debutTravail && minute + MINUTES_PAR_CRENEAU <= finTravail;
+                etats[jour * CRENEAUX_PAR_JOUR + i] = travaille ? LIBRE : REPOS;
+            }
+        }
+
+        long origine = du.atStartOfDay().toEpochSecond(ZoneOffset.UTC) / 60;
+        for (PlageAffectation plage : plages) {
+            long debut = plage.getDateDebut().toEpochSecond(ZoneOffset.UTC) / 60 - origine;
+            long fin = plage.getDateFin().toEpochSecond(ZoneOffset.UTC) / 60 - origine;
+            int premier = (int) Math.max(Math.floorDiv(debut, MINUTES_PAR_CRENEAU), 0);
+            int dernier = (int) Math.min(Math.floorDiv(fin + MINUTES_PAR_CRENEAU - 1, MINUTES_PAR_CRENEAU), etats.length);
+            for (int i = premier; i < dernier; i++) {
+                etats[i] = OCCUPE;
+            }
+        }
+        return etats;
+    }
+
+    private static String encoderPlages(char[] etats) {
+        StringBuilder encodage = new StringBuilder();
+        int i = 0;
+        while (i < etats.length) {
+            int j = i;
+            while (j < etats.length && etats[j] == etats[i]) {
+                j++;
+            }
+            encodage.append(j - i).append(etats[i]);
+            i = j;
+        }
+        return encodage.toString();
+    }
+
     private LocalDate getJourRepos(JourRepos jourRepos) {
         switch (jourRepos) {
             case LUNDI: return LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
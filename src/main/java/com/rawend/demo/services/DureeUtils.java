@@ -0,0 +1,44 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lecture des durées de service saisies en texte libre ("1h", "45min", "1h30min").
+ */
+public final class DureeUtils {
+
+    private static final Pattern DUREE = Pattern.compile("(\\d+)h\\s*(\\d+)min|(\\d+)h|(\\d+)min");
+
+    private DureeUtils() {
+    }
+
+    public static int enMinutes(String duree) {
+        if (duree == null || duree.isEmpty()) {
+            return 0;
+        }
+
+        Matcher matcher = DUREE.matcher(duree.toLowerCase());
+        if (!matcher.find()) {
+            return 0;
+        }
+
+        if (matcher.group(1) != null && matcher.group(2) != null) {
+            // Format "Xh Ymin"
+            return Integer.parseInt(matcher.group(1)) * 60 + Integer.parseInt(matcher.group(2));
+        } else if (matcher.group(3) != null) {
+            // Format "Xh"
+            return Integer.parseInt(matcher.group(3)) * 60;
+        }
+        // Format "Ymin"
+        return Integer.parseInt(matcher.group(4));
+    }
+
+    public static LocalDateTime calculerDateFin(LocalDateTime dateDebut, String duree) {
+        if (dateDebut == null) {
+            return null;
+        }
+        return dateDebut.plusMinutes(enMinutes(duree));
+    }
+}
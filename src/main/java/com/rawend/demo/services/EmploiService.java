@@ -21,10 +21,18 @@ public class EmploiService {
 
     private final UserRepository userRepository;
     private final TechnicienEmploiRepository technicienEmploiRepository;
+    private final RosterCapacite rosterCapacite;
+    private final VersionsDonnees versionsDonnees;
+    private final PlanningTechniciens planningTechniciens;
 
-    public EmploiService(UserRepository userRepository, TechnicienEmploiRepository technicienEmploiRepository) {
+    public EmploiService(UserRepository userRepository, TechnicienEmploiRepository technicienEmploiRepository,
+                         RosterCapacite rosterCapacite, VersionsDonnees versionsDonnees,
+                         PlanningTechniciens planningTechniciens) {
         this.userRepository = userRepository;
         this.technicienEmploiRepository = technicienEmploiRepository;
+        this.rosterCapacite = rosterCapacite;
+        this.versionsDonnees = versionsDonnees;
+        this.planningTechniciens = planningTechniciens;
     }
 
     public void ajouterEmploiTechnicienParEmail(EmploiRequest request) {
@@ -45,6 +53,9 @@ public class EmploiService {
        
 
         technicienEmploiRepository.save(emploi);
+        rosterCapacite.reconstruire();
+        planningTechniciens.rechargerHoraires();
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.ROSTER);
     }
 
     public List<String> getEmailsTechniciens() {
@@ -71,6 +82,9 @@ public class EmploiService {
         }
 
         technicienEmploiRepository.save(emploi);
+        rosterCapacite.reconstruire();
+        planningTechniciens.rechargerHoraires();
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.ROSTER);
     }
     public List<Map<String, Object>> getAllTechniciensAsMap() {
         List<TechnicienEmploi> techniciens = technicienEmploiRepository.findAll();
@@ -0,0 +1,62 @@
+package com.rawend.demo.services;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lecture des coordonnées GPS saisies par le client ("latitude,longitude") et estimation
+ * du temps de trajet d'un technicien entre deux interventions.
+ */
+public final class GeoUtils {
+
+    private static final Pattern COORDONNEES = Pattern.compile("\\s*(-?\\d+(?:\\.\\d+)?)\\s*[,;]\\s*(-?\\d+(?:\\.\\d+)?)\\s*");
+
+    private static final double RAYON_TERRE_KM = 6371.0;
+
+    // Vitesse moyenne en ville, stationnement compris
+    private static final double VITESSE_MOYENNE_KMH = 30.0;
+
+    public record Position(double latitude, double longitude) {
+    }
+
+    private GeoUtils() {
+    }
+
+    /** @return la position lue, ou {@code null} si le texte n'est pas une paire de coordonnées valide */
+    public static Position parser(String localisation) {
+        if (localisation == null) {
+            return null;
+        }
+        Matcher matcher = COORDONNEES.matcher(localisation);
+        if (!matcher.matches()) {
+            return null;
+        }
+        double latitude = Double.parseDouble(matcher.group(1));
+        double longitude = Double.parseDouble(matcher.group(2));
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            return null;
+        }
+        return new Position(latitude, longitude);
+    }
+
+    public static Position position(Double latitude, Double longitude) {
+        return latitude != null && longitude != null ? new Position(latitude, longitude) : null;
+    }
+
+    public static double distanceKm(Position a, Position b) {
+        double dLat = Math.toRadians(b.latitude() - a.latitude());
+        double dLon = Math.toRadians(b.longitude() - a.longitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(a.latitude())) * Math.cos(Math.toRadians(b.latitude()))
+            * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /** Temps de trajet estimé en minutes (arrondi au-dessus), 0 si l'une des positions est inconnue. */
+    public static long minutesTrajet(Position depart, Position arrivee) {
+        if (depart == null || arrivee == null) {
+            return 0;
+        }
+        return (long) Math.ceil(distanceKm(depart, arrivee) / VITESSE_MOYENNE_KMH * 60);
+    }
+}
@@ -0,0 +1,162 @@
+package com.rawend.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rawend.demo.Repository.IdempotenceReservationRepository;
+import com.rawend.demo.entity.IdempotenceReservation;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Réponses des créations de réservation indexées par {@code Idempotency-Key}. Les plus
+ * récentes sont gardées en mémoire (nombre et durée bornés), la table
+ * {@code idempotence_reservation} prenant le relais après un redémarrage ou sur une autre
+ * instance. Une nouvelle tentative reçoit la réponse d'origine sans repasser par le
+ * calcul du prix, l'insertion ni les notifications.
+ */
+@Slf4j
+@Service
+public class IdempotenceReservations {
+
+    private static final TypeReference<Map<String, Object>> TYPE_REPONSE = new TypeReference<>() {};
+
+    @Autowired
+    private IdempotenceReservationRepository idempotenceReservationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${idempotence.duree-heures:24}")
+    private long dureeHeures;
+
+    @Value("${idempotence.max-en-memoire:10000}")
+    private int maxEnMemoire;
+
+    private record Entree(String userEmail, Map<String, Object> reponse, LocalDateTime dateCreation) {
+    }
+
+    // Ordre d'accès : la clé la moins récemment utilisée est évincée en premier
+    private final LinkedHashMap<String, Entree> recentes = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+            return size() > maxEnMemoire;
+        }
+    };
+
+    /**
+     * @return la réponse déjà envoyée pour cette clé, ou {@code null} si elle est inconnue ou expirée
+     * @throws ResponseStatusException 409 si la clé a été utilisée par un autre utilisateur
+     */
+    public Map<String, Object> trouver(String cle, String userEmail) {
+        Entree entree;
+        synchronized (recentes) {
+            entree = recentes.get(cle);
+        }
+        if (entree == null) {
+            IdempotenceReservation ligne = idempotenceReservationRepository.findById(cle).orElse(null);
+            if (ligne == null) {
+                return null;
+            }
+            entree = new Entree(ligne.getUserEmail(), lire(ligne.getReponse()), ligne.getDateCreation());
+            memoriser(cle, entree);
+        }
+
+        if (entree.dateCreation().isBefore(limite())) {
+            // Expirée mais pas encore purgée : la clé redevient libre
+            synchronized (recentes) {
+                recentes.remove(cle);
+            }
+            idempotenceReservationRepository.deleteById(cle);
+            return null;
+        }
+        if (!entree.userEmail().equals(userEmail)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Clé d'idempotence déjà utilisée");
+        }
+        return entree.reponse();
+    }
+
+    /**
+     * Enregistre la réponse dans la transaction de création : elle n'existe que si la
+     * réservation existe. Deux requêtes concurrentes avec la même clé se heurtent à la clé
+     * primaire et la seconde échoue en {@code DataIntegrityViolationException}.
+     */
+    public void enregistrer(String cle, String userEmail, Long reservationId, Map<String, Object> reponse) {
+        String json = ecrire(reponse);
+        LocalDateTime maintenant = LocalDateTime.now();
+        // persist (et non save/merge) pour ne jamais écraser la ligne d'une requête concurrente ;
+        // le flush passe par le repository pour que l'erreur soit traduite par Spring
+        entityManager.persist(new IdempotenceReservation(cle, userEmail, reservationId, json, maintenant));
+        idempotenceReservationRepository.flush();
+
+        // Relue depuis le JSON pour rejouer exactement ce que le client a reçu
+        Entree entree = new Entree(userEmail, lire(json), maintenant);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    memoriser(cle, entree);
+                }
+            });
+        } else {
+            memoriser(cle, entree);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purger() {
+        LocalDateTime limite = limite();
+        synchronized (recentes) {
+            recentes.values().removeIf(entree -> entree.dateCreation().isBefore(limite));
+        }
+        int supprimees = idempotenceReservationRepository.supprimerAvant(limite);
+        if (supprimees > 0) {
+            log.info("{} clés d'idempotence expirées supprimées", supprimees);
+        }
+    }
+
+    private LocalDateTime limite() {
+        return LocalDateTime.now().minus(Duration.ofHours(dureeHeures));
+    }
+
+    private void memoriser(String cle, Entree entree) {
+        synchronized (recentes) {
+            recentes.put(cle, entree);
+        }
+    }
+
+    private String ecrire(Map<String, Object> reponse) {
+        try {
+            return objectMapper.writeValueAsString(reponse);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Réponse de réservation non sérialisable", e);
+        }
+    }
+
+    private Map<String, Object> lire(String json) {
+        try {
+            return objectMapper.readValue(json, TYPE_REPONSE);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Réponse d'idempotence illisible", e);
+        }
+    }
+}
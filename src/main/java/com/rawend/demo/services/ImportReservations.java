@@ -0,0 +1,393 @@
+package com.rawend.demo.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rawend.demo.Repository.ServiceRepository;
+import com.rawend.demo.entity.ModePaiement;
+import com.rawend.demo.entity.ReservationStatus;
+import com.rawend.demo.entity.ServiceEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import en masse de réservations (stations partenaires, commandes téléphoniques) depuis un
+ * fichier CSV ou un tableau JSON lu au fil de l'eau. Les lignes sont validées par paquets
+ * contre les services (chargés une fois) et les clients (cherchés une fois par e-mail),
+ * puis insérées par lots JDBC. Pas de rappels ni de notifications : seul l'état dérivé
+ * (occupation, slot_usage, ETags) est mis à jour à la fin.
+ *
+ * Colonnes : emailClient, serviceId, dateReservation (ISO), modePaiement, localisation,
+ * prix (facultatif, prix du service sinon).
+ */
+@Slf4j
+@Service
+public class ImportReservations {
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    private static final int TAILLE_PAQUET = 1000;
+
+    private static final TypeReference<Map<String, String>> TYPE_LIGNE = new TypeReference<>() {};
+
+    private static final String INSERTION = "INSERT INTO reservation (user_id, service_id, prix, mode_paiement, "
+        + "localisation, latitude, longitude, date_reservation, date_creation, titre_service, email, phone, duree, status) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] TYPES_INSERTION = {
+        Types.BIGINT, Types.BIGINT, Types.DOUBLE, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DOUBLE,
+        Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OccupationIndex occupationIndex;
+
+    @Autowired
+    private SlotUsageService slotUsageService;
+
+    @Autowired
+    private DiffusionDisponibilites diffusionDisponibilites;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    private record Client(Long id, String phone) {
+    }
+
+    private record Ligne(long numero, Map<String, String> valeurs) {
+    }
+
+    // État d'un import : caches et bilan, propre à un appel
+    private class Import {
+        final Map<Long, ServiceEntity> services = new HashMap<>();
+        final Map<String, Client> clients = new HashMap<>();
+        final Set<String> inconnus = new HashSet<>();
+        final List<Map<String, Object>> erreurs = new ArrayList<>();
+        final LocalDateTime dateCreation = LocalDateTime.now();
+        long lues = 0;
+        long importees = 0;
+        // Jours couverts par les lignes importées, dans l'ordre croissant
+        final TreeSet<LocalDate> jours = new TreeSet<>();
+
+        void erreur(long numero, String motif) {
+            Map<String, Object> erreur = new LinkedHashMap<>();
+            erreur.put("ligne", numero);
+            erreur.put("motif", motif);
+            erreurs.add(erreur);
+        }
+    }
+
+    @Transactional
+    public Map<String, Object> importer(InputStream flux, Format format) {
+        Import courant = new Import();
+        for (ServiceEntity service : serviceRepository.findAll()) {
+            courant.services.put(service.getId(), service);
+        }
+
+        try {
+            if (format == Format.JSON) {
+                lireJson(flux, courant);
+            } else {
+                lireCsv(flux, courant);
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Fichier d'import illisible : " + e.getMessage());
+        }
+
+        if (courant.importees > 0) {
+            mettreAJourEtatDerive(courant);
+        }
+        log.info("Import de réservations : {} lignes lues, {} importées, {} en erreur",
+            courant.lues, courant.importees, courant.erreurs.size());
+
+        Map<String, Object> rapport = new HashMap<>();
+        rapport.put("lignesLues", courant.lues);
+        rapport.put("importees", courant.importees);
+        rapport.put("erreurs", courant.erreurs);
+        return rapport;
+    }
+
+    private void lireCsv(InputStream flux, Import courant) throws IOException {
+        BufferedReader lecteur = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8));
+        String entete = lecteur.readLine();
+        if (entete == null) {
+            return;
+        }
+        List<String> colonnes = decouper(entete.replace("\uFEFF", ""));
+
+        List<Ligne> paquet = new ArrayList<>(TAILLE_PAQUET);
+        long numero = 1;
+        String texte;
+        while ((texte = lecteur.readLine()) != null) {
+            numero++;
+            if (texte.isBlank()) {
+                continue;
+            }
+            List<String> champs = decouper(texte);
+            Map<String, String> valeurs = new HashMap<>();
+            for (int i = 0; i < colonnes.size() && i < champs.size(); i++) {
+                valeurs.put(colonnes.get(i).trim(), champs.get(i));
+            }
+            paquet.add(new Ligne(numero, valeurs));
+            if (paquet.size() == TAILLE_PAQUET) {
+                traiter(paquet, courant);
+                paquet.clear();
+            }
+        }
+        traiter(paquet, courant);
+    }
+
+    // Tableau JSON d'objets, lu élément par élément
+    private void lireJson(InputStream flux, Import courant) throws IOException {
+        List<Ligne> paquet = new ArrayList<>(TAILLE_PAQUET);
+        long numero = 0;
+        try (MappingIterator<Map<String, String>> elements = objectMapper.readerFor(TYPE_LIGNE).readValues(flux)) {
+            while (elements.hasNextValue()) {
+                numero++;
+                Map<String, String> valeurs;
+                try {
+                    valeurs = elements.nextValue();
+                } catch (JsonProcessingException e) {
+                    courant.lues++;
+                    courant.erreur(numero, "Élément JSON invalide : " + e.getOriginalMessage());
+                    continue;
+                }
+                paquet.add(new Ligne(numero, valeurs));
+                if (paquet.size() == TAILLE_PAQUET) {
+                    traiter(paquet, courant);
+                    paquet.clear();
+                }
+            }
+        }
+        traiter(paquet, courant);
+    }
+
+    private void traiter(List<Ligne> paquet, Import courant) {
+        if (paquet.isEmpty()) {
+            return;
+        }
+        courant.lues += paquet.size();
+        chargerClients(paquet, courant);
+
+        List<Object[]> lignes = new ArrayList<>(paquet.size());
+        for (Ligne ligne : paquet) {
+            Object[] valeurs = valider(ligne, courant);
+            if (valeurs != null) {
+                lignes.add(valeurs);
+            }
+        }
+        if (!lignes.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERTION, lignes, TYPES_INSERTION);
+            courant.importees += lignes.size();
+        }
+    }
+
+    // Une requête par paquet pour les e-mails pas encore rencontrés
+    private void chargerClients(List<Ligne> paquet, Import courant) {
+        Set<String> aChercher = new HashSet<>();
+        for (Ligne ligne : paquet) {
+            String email = valeur(ligne, "emailClient");
+            if (email != null && !courant.clients.containsKey(email) && !courant.inconnus.contains(email)) {
+                aChercher.add(email);
+            }
+        }
+        if (aChercher.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query("SELECT id, email, phone FROM users WHERE email IN (:emails)",
+            new MapSqlParameterSource("emails", aChercher),
+            rs -> {
+                courant.clients.put(rs.getString("email"), new Client(rs.getLong("id"), rs.getString("phone")));
+            });
+        for (String email : aChercher) {
+            if (!courant.clients.containsKey(email)) {
+                courant.inconnus.add(email);
+            }
+        }
+    }
+
+    /** @return les paramètres de l'insertion, ou {@code null} si la ligne est rejetée (motif ajouté au bilan) */
+    private Object[] valider(Ligne ligne, Import courant) {
+        String email = valeur(ligne, "emailClient");
+        Client client = email != null ? courant.clients.get(email) : null;
+        if (client == null) {
+            courant.erreur(ligne.numero(), email == null ? "emailClient manquant" : "Client inconnu : " + email);
+            return null;
+        }
+
+        ServiceEntity service;
+        try {
+            String serviceId = valeur(ligne, "serviceId");
+            service = serviceId != null ? courant.services.get(Long.valueOf(serviceId)) : null;
+        } catch (NumberFormatException e) {
+            service = null;
+        }
+        if (service == null) {
+            courant.erreur(ligne.numero(), "Service inconnu : " + valeur(ligne, "serviceId"));
+            return null;
+        }
+
+        LocalDateTime dateReservation;
+        try {
+            String date = valeur(ligne, "dateReservation");
+            if (date == null) {
+                courant.erreur(ligne.numero(), "dateReservation manquante");
+                return null;
+            }
+            dateReservation = LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            courant.erreur(ligne.numero(), "dateReservation invalide : " + valeur(ligne, "dateReservation"));
+            return null;
+        }
+
+        ModePaiement modePaiement;
+        try {
+            String mode = valeur(ligne, "modePaiement");
+            modePaiement = mode != null ? ModePaiement.valueOf(mode.toUpperCase()) : ModePaiement.SUR_PLACE;
+        } catch (IllegalArgumentException e) {
+            courant.erreur(ligne.numero(), "modePaiement invalide : " + valeur(ligne, "modePaiement"));
+            return null;
+        }
+
+        Double prix = service.getPrix();
+        String prixTexte = valeur(ligne, "prix");
+        if (prixTexte != null) {
+            try {
+                prix = Double.valueOf(prixTexte);
+            } catch (NumberFormatException e) {
+                courant.erreur(ligne.numero(), "prix invalide : " + prixTexte);
+                return null;
+            }
+        }
+
+        String localisation = valeur(ligne, "localisation");
+        GeoUtils.Position position = GeoUtils.parser(localisation);
+        LocalDateTime dateFin = DureeUtils.calculerDateFin(dateReservation, service.getDuree());
+        LocalDate dernierJour = dateFin.isAfter(dateReservation) ? dateFin.minusNanos(1).toLocalDate() : dateReservation.toLocalDate();
+        for (LocalDate jour = dateReservation.toLocalDate(); !jour.isAfter(dernierJour); jour = jour.plusDays(1)) {
+            courant.jours.add(jour);
+        }
+
+        return new Object[] {
+            client.id(), service.getId(), prix, modePaiement.name(), localisation,
+            position != null ? position.latitude() : null, position != null ? position.longitude() : null,
+            Timestamp.valueOf(dateReservation), Timestamp.valueOf(courant.dateCreation), service.getTitre(),
+            email, client.phone(), service.getDuree(), ReservationStatus.EN_ATTENTE.name()
+        };
+    }
+
+    /**
+     * Seuls les jours réellement touchés sont recalculés, par suites de jours consécutifs et
+     * dans l'ordre croissant : un import étalé sur l'année ne verrouille pas les jours vides
+     * entre deux réservations. Les identifiants des lignes insérées ne sont pas relus :
+     * l'index d'occupation est rechargé.
+     */
+    private void mettreAJourEtatDerive(Import courant) {
+        LocalDate debutSuite = null;
+        LocalDate finSuite = null;
+        for (LocalDate jour : courant.jours) {
+            if (finSuite != null && !jour.equals(finSuite.plusDays(1))) {
+                rafraichirJours(debutSuite, finSuite);
+                debutSuite = null;
+            }
+            if (debutSuite == null) {
+                debutSuite = jour;
+            }
+            finSuite = jour;
+        }
+        rafraichirJours(debutSuite, finSuite);
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                occupationIndex.invalider();
+            }
+        });
+    }
+
+    private void rafraichirJours(LocalDate premier, LocalDate dernier) {
+        LocalDateTime debut = premier.atStartOfDay();
+        LocalDateTime fin = dernier.plusDays(1).atStartOfDay();
+        diffusionDisponibilites.signaler(debut, fin);
+        slotUsageService.rafraichir(debut, fin);
+    }
+
+    private static String valeur(Ligne ligne, String colonne) {
+        String valeur = ligne.valeurs().get(colonne);
+        return valeur == null || valeur.isBlank() ? null : valeur.trim();
+    }
+
+    // Champs séparés par des virgules ; un champ entre guillemets peut en contenir ("36.8,10.1")
+    static List<String> decouper(String texte) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < texte.length() && texte.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+}
@@ -0,0 +1,144 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rawend.demo.Repository.PromotionRepository;
+import com.rawend.demo.entity.PromotionEntity;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index en mémoire des périodes de promotion. Les bornes de toutes les promotions actives
+ * découpent le calendrier en segments où l'ensemble des promotions en cours est constant ;
+ * chaque segment est rangé par date de début, si bien que « quelles promotions ce jour-là »
+ * est une recherche dichotomique ({@link NavigableMap#floorEntry}). L'index est chargé au
+ * démarrage puis reconstruit dès que la version {@link VersionsDonnees.Agregat#PROMOTIONS}
+ * change.
+ * <p>
+ * Règle unique des bornes : une promotion dont {@code actif} vaut {@code true} (non
+ * renseigné : inactive) est en cours du jour de {@code dateDebut} au jour de
+ * {@code dateFin}, tous deux inclus (fuseau du serveur).
+ */
+@Slf4j
+@Service
+public class IndexPromotions {
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    private record Index(long version, NavigableMap<LocalDate, List<Long>> segments) {
+    }
+
+    private volatile Index index;
+
+    /** @return les identifiants des promotions en cours ce jour-là, par identifiant croissant */
+    public List<Long> actives(LocalDate jour) {
+        Map.Entry<LocalDate, List<Long>> segment = indexAJour().segments().floorEntry(jour);
+        return segment != null ? segment.getValue() : List.of();
+    }
+
+    /** Règle des bornes partagée avec la grille des prix. */
+    public static boolean estActive(Boolean actif, Date dateDebut, Date dateFin, LocalDate jour) {
+        if (!Boolean.TRUE.equals(actif)) {
+            return false;
+        }
+        LocalDate debut = versLocalDate(dateDebut);
+        LocalDate fin = versLocalDate(dateFin);
+        return (debut == null || !debut.isAfter(jour)) && (fin == null || !fin.isBefore(jour));
+    }
+
+    static LocalDate versLocalDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        if (date instanceof java.sql.Date dateSql) {
+            return dateSql.toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        indexAJour();
+    }
+
+    private Index indexAJour() {
+        Index courant = index;
+        long version = versionsDonnees.version(VersionsDonnees.Agregat.PROMOTIONS);
+        if (courant == null || courant.version() != version) {
+            synchronized (this) {
+                courant = index;
+                if (courant == null || courant.version() != version) {
+                    courant = new Index(version, construire(promotionRepository.findAll()));
+                    index = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    // Entrée ou sortie d'une promotion à une borne
+    private record Evenement(LocalDate borne, long id, boolean entree) {
+    }
+
+    /**
+     * Un segment commence à chaque {@code dateDebut} et au lendemain de chaque
+     * {@code dateFin} ; une date absente laisse la période ouverte de ce côté. Les bornes
+     * sont triées une fois puis balayées en tenant l'ensemble des promotions en cours.
+     */
+    static NavigableMap<LocalDate, List<Long>> construire(List<PromotionEntity> promotions) {
+        List<Evenement> evenements = new ArrayList<>();
+        int periodes = 0;
+        for (PromotionEntity promo : promotions) {
+            if (!Boolean.TRUE.equals(promo.getActif())) {
+                continue;
+            }
+            LocalDate debut = versLocalDate(promo.getDateDebut());
+            LocalDate fin = versLocalDate(promo.getDateFin());
+            if (debut != null && fin != null && fin.isBefore(debut)) {
+                continue;
+            }
+            periodes++;
+            evenements.add(new Evenement(debut != null ? debut : LocalDate.MIN, promo.getId(), true));
+            if (fin != null) {
+                evenements.add(new Evenement(fin.plusDays(1), promo.getId(), false));
+            }
+        }
+        evenements.sort(Comparator.comparing(Evenement::borne));
+
+        NavigableMap<LocalDate, List<Long>> segments = new TreeMap<>();
+        TreeSet<Long> enCours = new TreeSet<>();
+        for (int i = 0; i < evenements.size(); i++) {
+            Evenement evenement = evenements.get(i);
+            if (evenement.entree()) {
+                enCours.add(evenement.id());
+            } else {
+                enCours.remove(evenement.id());
+            }
+            // Segment fermé une fois tous les événements de la même borne appliqués
+            if (i + 1 == evenements.size() || !evenements.get(i + 1).borne().equals(evenement.borne())) {
+                segments.put(evenement.borne(), List.copyOf(enCours));
+            }
+        }
+        log.debug("Index des promotions : {} périodes, {} segments", periodes, segments.size());
+        return Collections.unmodifiableNavigableMap(segments);
+    }
+}
@@ -37,13 +37,15 @@ public class NotificationService {
     		    .collect(Collectors.toList());
 
 
-        // --- Création et envoi de la notification à chaque admin ---
-        for (String adminEmail : adminEmails) {
-            Notification notification = new Notification(adminEmail, message);
-            notificationRepository.save(notification);
+        // --- Création des notifications en une seule écriture groupée ---
+        List<Notification> notifications = adminEmails.stream()
+            .map(adminEmail -> new Notification(adminEmail, message))
+            .collect(Collectors.toList());
+        notificationRepository.saveAll(notifications);
 
-            // Envoi de la notification en temps réel via WebSocket
-            messagingTemplate.convertAndSend("/topic/notifications/" + adminEmail, notification);
+        // Envoi de la notification en temps réel via WebSocket
+        for (Notification notification : notifications) {
+            messagingTemplate.convertAndSend("/topic/notifications/" + notification.getUserEmail(), notification);
         }
     }
     public void sendNotificationToUser(String userEmail, String message) {
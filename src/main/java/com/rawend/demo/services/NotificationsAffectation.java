@@ -0,0 +1,54 @@
+package com.rawend.demo.services;
+
+import java.time.format.DateTimeFormatter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Notifications des techniciens après une affectation ou une réaffectation : enregistrées et poussées par
+ * WebSocket sur l'exécuteur dédié, en dehors de la requête de l'administrateur.
+ */
+@Slf4j
+@Component
+public class NotificationsAffectation {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Async("notificationExecutor")
+    @TransactionalEventListener
+    public void technicienAffecte(TechnicienAffecteEvent event) {
+        String dateDebut = event.dateDebut().format(FORMAT);
+        String dateFin = event.dateFin().format(FORMAT);
+
+        if (event.remplacement()) {
+            notificationService.sendNotificationToUser(event.emailTechnicien(),
+                "vous avez une nouvelle réservation  prévue du " + dateDebut + " au " + dateFin + ".");
+        } else {
+            notificationService.sendNotificationToUser(event.emailTechnicien(),
+                "Vous avez été affecté à la réservation planifiée de " + dateDebut + " à " + dateFin + ".");
+        }
+
+        if (event.ancienEmailTechnicien() != null) {
+            notificationService.sendNotificationToUser(event.ancienEmailTechnicien(),
+                "Votre affectation à la réservation  prévue du " + dateDebut + " au " + dateFin + " est  annulée.");
+        }
+        log.debug("Notifications envoyées pour la réservation {}", event.reservationId());
+    }
+
+    @Async("notificationExecutor")
+    @TransactionalEventListener
+    public void technicienRetire(TechnicienRetireEvent event) {
+        notificationService.sendNotificationToUser(event.emailTechnicien(),
+            "Vous avez été retiré de " + event.nombreReservations()
+                + " réservation(s) du " + event.du() + " au " + event.au() + ".");
+        log.debug("Récapitulatif de réaffectation envoyé à {}", event.emailTechnicien());
+    }
+}
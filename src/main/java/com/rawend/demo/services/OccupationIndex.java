@@ -0,0 +1,291 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rawend.demo.Repository.ReservationRepository;
+import com.rawend.demo.dto.CreneauReservation;
+import com.rawend.demo.entity.ReservationEntity;
+import com.rawend.demo.entity.TimeSlot;
+
+/**
+ * Index en mémoire du nombre de réservations par créneau de 30 minutes, rangé par jour.
+ * Il est chargé une seule fois puis tenu à jour à chaque écriture de réservation ou
+ * d'affectation, ce qui évite de relire toute la table pour chaque calcul de saturation.
+ * Les lectures y ajoutent les retenues de {@link RetenuesCreneaux}.
+ */
+@Service
+public class OccupationIndex {
+
+    public static final int MINUTES_PAR_CRENEAU = 30;
+    public static final int CRENEAUX_PAR_JOUR = 24 * 60 / MINUTES_PAR_CRENEAU;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    // Retenues de paiement en cours, comptées comme des réservations
+    @Autowired
+    private RetenuesCreneaux retenuesCreneaux;
+
+    private final ConcurrentSkipListMap<LocalDate, int[]> occupationParJour = new ConcurrentSkipListMap<>();
+
+    // Créneaux [premier, dernier[ déjà comptés pour chaque réservation, pour pouvoir réindexer
+    private final Map<Long, long[]> creneauxParReservation = new HashMap<>();
+
+    private boolean charge = false;
+
+    public void indexer(ReservationEntity reservation) {
+        LocalDateTime debut = reservation.getDateReservation();
+        indexer(reservation.getId(), debut, DureeUtils.calculerDateFin(debut, reservation.getDuree()));
+    }
+
+    public synchronized void indexer(Long reservationId, LocalDateTime debut, LocalDateTime fin) {
+        chargerSiNecessaire();
+        ajouter(reservationId, debut, fin);
+    }
+
+    /** Après une écriture en masse hors JPA : l'index sera relu depuis la base au prochain accès. */
+    public synchronized void invalider() {
+        occupationParJour.clear();
+        creneauxParReservation.clear();
+        charge = false;
+    }
+
+    public synchronized void retirer(Long reservationId) {
+        chargerSiNecessaire();
+        long[] anciens = creneauxParReservation.remove(reservationId);
+        if (anciens != null) {
+            appliquer(anciens[0], anciens[1], -1);
+        }
+    }
+
+    /**
+     * Créneaux saturés entre {@code du} (inclus) et {@code au} (exclu), fusionnés en périodes
+     * continues par {@link SaturationEngine}. Les bornes peuvent être nulles.
+     */
+    public synchronized List<TimeSlot> getCreneauxSatures(LocalDate du, LocalDate au,
+                                                         SaturationEngine.Capacite capacite) {
+        chargerSiNecessaire();
+
+        NavigableMap<LocalDate, int[]> jours = occupationParJour;
+        if (du != null) {
+            jours = jours.tailMap(du, true);
+        }
+        if (au != null) {
+            jours = jours.headMap(au, false);
+        }
+
+        if (!retenuesCreneaux.estVide()) {
+            NavigableMap<LocalDate, int[]> avecRetenues = new TreeMap<>(jours);
+            for (Map.Entry<LocalDate, int[]> entry : retenuesCreneaux.entre(du, au).entrySet()) {
+                avecRetenues.put(entry.getKey(), RetenuesCreneaux.additionner(jours.get(entry.getKey()), entry.getValue()));
+            }
+            jours = avecRetenues;
+        }
+
+        SaturationEngine.Fusion fusion = new SaturationEngine.Fusion();
+        for (Map.Entry<LocalDate, int[]> entry : jours.entrySet()) {
+            SaturationEngine.balayer(entry.getKey().toEpochDay() * CRENEAUX_PAR_JOUR, entry.getValue(), capacite, fusion);
+        }
+        return fusion.resultat();
+    }
+
+    /** Créneaux saturés d'une journée sous forme de masque : le bit i correspond au créneau i. */
+    public synchronized long getMasqueSatures(LocalDate jour, SaturationEngine.Capacite capacite) {
+        chargerSiNecessaire();
+
+        int[] occupation = occupationDuJour(jour);
+        if (occupation == null) {
+            return 0L;
+        }
+        long premier = jour.toEpochDay() * CRENEAUX_PAR_JOUR;
+        long masque = 0L;
+        for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+            if (occupation[i] > 0 && occupation[i] >= capacite.capacite(premier + i)) {
+                masque |= 1L << i;
+            }
+        }
+        return masque;
+    }
+
+    /**
+     * Premiers débuts (alignés sur les créneaux, à partir de {@code aPartirDe}) où une
+     * prestation de {@code dureeMinutes} tient entièrement dans des créneaux non saturés.
+     * La recherche s'arrête dès que {@code nombre} débuts sont trouvés, ou à l'horizon.
+     */
+    public synchronized List<LocalDateTime> getProchainsCreneauxLibres(LocalDateTime aPartirDe, int dureeMinutes,
+                                                                    int nombre, int horizonJours,
+                                                                    SaturationEngine.Capacite capacite) {
+        chargerSiNecessaire();
+
+        int creneauxNecessaires = Math.max(1, (dureeMinutes + MINUTES_PAR_CRENEAU - 1) / MINUTES_PAR_CRENEAU);
+        long premier = creneauFin(aPartirDe);
+        long limite = premier + (long) horizonJours * CRENEAUX_PAR_JOUR;
+
+        List<LocalDateTime> debuts = new ArrayList<>();
+        int libresConsecutifs = 0;
+        long jourCourant = Long.MIN_VALUE;
+        int[] occupation = null;
+
+        for (long creneau = premier; creneau < limite && debuts.size() < nombre; creneau++) {
+            long jour = Math.floorDiv(creneau, CRENEAUX_PAR_JOUR);
+            if (jour != jourCourant) {
+                jourCourant = jour;
+                occupation = occupationDuJour(LocalDate.ofEpochDay(jour));
+            }
+            int reservees = occupation == null ? 0 : occupation[(int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR)];
+
+            if (reservees < capacite.capacite(creneau)) {
+                libresConsecutifs++;
+            } else {
+                libresConsecutifs = 0;
+            }
+            if (libresConsecutifs >= creneauxNecessaires) {
+                debuts.add(SaturationEngine.debutCreneau(creneau - creneauxNecessaires + 1));
+            }
+        }
+        return debuts;
+    }
+
+    /**
+     * Indique pour chaque intervalle de créneaux [debuts[k], fins[k][ s'il ne contient aucun
+     * créneau plein. Les intervalles qui se chevauchent sont regroupés : la capacité de chaque
+     * créneau d'un groupe n'est évaluée qu'une fois, puis chaque intervalle est tranché par
+     * sommes cumulées.
+     */
+    public synchronized boolean[] sontLibres(long[] debuts, long[] fins, SaturationEngine.Capacite capacite) {
+        chargerSiNecessaire();
+
+        int n = debuts.length;
+        Integer[] ordre = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            ordre[k] = k;
+        }
+        Arrays.sort(ordre, Comparator.comparingLong(k -> debuts[k]));
+
+        boolean[] libres = new boolean[n];
+        int i = 0;
+        while (i < n) {
+            // Groupe d'intervalles qui se chevauchent
+            long debutGroupe = debuts[ordre[i]];
+            long finGroupe = fins[ordre[i]];
+            int j = i + 1;
+            while (j < n && debuts[ordre[j]] < finGroupe) {
+                finGroupe = Math.max(finGroupe, fins[ordre[j]]);
+                j++;
+            }
+
+            // pleins[c] = nombre de créneaux pleins avant debutGroupe + c
+            int[] pleins = new int[(int) (finGroupe - debutGroupe) + 1];
+            long jourCourant = Long.MIN_VALUE;
+            int[] occupation = null;
+            for (long creneau = debutGroupe; creneau < finGroupe; creneau++) {
+                long jour = Math.floorDiv(creneau, CRENEAUX_PAR_JOUR);
+                if (jour != jourCourant) {
+                    jourCourant = jour;
+                    occupation = occupationDuJour(LocalDate.ofEpochDay(jour));
+                }
+                int reservees = occupation == null ? 0 : occupation[(int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR)];
+                int c = (int) (creneau - debutGroupe);
+                pleins[c + 1] = pleins[c] + (reservees < capacite.capacite(creneau) ? 0 : 1);
+            }
+
+            for (int k = i; k < j; k++) {
+                int idx = ordre[k];
+                libres[idx] = pleins[(int) (fins[idx] - debutGroupe)] == pleins[(int) (debuts[idx] - debutGroupe)];
+            }
+            i = j;
+        }
+        return libres;
+    }
+
+    /**
+     * Vrai si l'un des créneaux [premier, dernier[ compte plus de réservations et de retenues
+     * que sa capacité (et non « autant » : la retenue à vérifier y est déjà comptée).
+     */
+    public synchronized boolean depasseCapacite(long premier, long dernier, SaturationEngine.Capacite capacite) {
+        chargerSiNecessaire();
+
+        long jourCourant = Long.MIN_VALUE;
+        int[] occupation = null;
+        for (long creneau = premier; creneau < dernier; creneau++) {
+            long jour = Math.floorDiv(creneau, CRENEAUX_PAR_JOUR);
+            if (jour != jourCourant) {
+                jourCourant = jour;
+                occupation = occupationDuJour(LocalDate.ofEpochDay(jour));
+            }
+            int occupes = occupation == null ? 0 : occupation[(int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR)];
+            if (occupes > capacite.capacite(creneau)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Réservations et retenues du jour, null si aucune
+    private int[] occupationDuJour(LocalDate jour) {
+        int[] occupation = occupationParJour.get(jour);
+        int[] retenues = retenuesCreneaux.duJour(jour);
+        return retenues == null ? occupation : RetenuesCreneaux.additionner(occupation, retenues);
+    }
+
+    private void chargerSiNecessaire() {
+        if (charge) {
+            return;
+        }
+        for (CreneauReservation reservation : reservationRepository.findAllCreneaux()) {
+            LocalDateTime debut = reservation.getDateReservation();
+            ajouter(reservation.getId(), debut, DureeUtils.calculerDateFin(debut, reservation.getDuree()));
+        }
+        charge = true;
+    }
+
+    private void ajouter(Long reservationId, LocalDateTime debut, LocalDateTime fin) {
+        long[] anciens = creneauxParReservation.remove(reservationId);
+        if (anciens != null) {
+            appliquer(anciens[0], anciens[1], -1);
+        }
+        if (debut == null || fin == null || !fin.isAfter(debut)) {
+            return;
+        }
+
+        long premier = creneauDebut(debut);
+        long dernier = creneauFin(fin);
+        creneauxParReservation.put(reservationId, new long[] { premier, dernier });
+        appliquer(premier, dernier, 1);
+    }
+
+    private void appliquer(long premier, long dernier, int delta) {
+        for (long creneau = premier; creneau < dernier; creneau++) {
+            LocalDate jour = LocalDate.ofEpochDay(Math.floorDiv(creneau, CRENEAUX_PAR_JOUR));
+            int[] occupation = occupationParJour.computeIfAbsent(jour, j -> new int[CRENEAUX_PAR_JOUR]);
+            occupation[(int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR)] += delta;
+        }
+    }
+
+    // Numéro du créneau contenant ce début (créneaux comptés depuis l'epoch, heure locale)
+    static long creneauDebut(LocalDateTime debut) {
+        return Math.floorDiv(enMinutes(debut), MINUTES_PAR_CRENEAU);
+    }
+
+    // Premier créneau après cette fin : un créneau entamé compte comme occupé
+    static long creneauFin(LocalDateTime fin) {
+        return Math.floorDiv(enMinutes(fin) + MINUTES_PAR_CRENEAU - 1, MINUTES_PAR_CRENEAU);
+    }
+
+    private static long enMinutes(LocalDateTime dateTime) {
+        return SaturationEngine.versMinutes(dateTime);
+    }
+}
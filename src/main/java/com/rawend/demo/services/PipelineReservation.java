@@ -0,0 +1,111 @@
+package com.rawend.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Suite d'une création de réservation, exécutée après commit sur l'exécuteur
+ * {@code reservationExecutor} : notification des administrateurs puis planification des
+ * rappels du client. La requête de réservation ne fait plus que valider, calculer le prix
+ * et insérer.
+ */
+@Slf4j
+@Component
+public class PipelineReservation {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private NotificationService notificationService;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Async("reservationExecutor")
+    @TransactionalEventListener
+    public void reservationCreee(ReservationCreeeEvent event) {
+        String notificationMessage = "Vous avez une nouvelle réservation: " + event.reservationId() +
+                " pour le service: " + event.serviceTitre() +
+                " prévue du " + event.dateDebut().format(FORMAT) +
+                " au " + event.dateFin().format(FORMAT) + ".";
+        notificationService.sendNotificationToAdmins(notificationMessage);
+
+        scheduleNotificationReminders(event);
+    }
+
+    private void scheduleNotificationReminders(ReservationCreeeEvent event) {
+        LocalDate nowDate = LocalDate.now();
+        LocalDateTime nowDateTime = LocalDateTime.now();
+        LocalDate reservationDate = event.dateDebut().toLocalDate();
+        LocalDate creationDate = event.dateCreation().toLocalDate();
+
+        String userEmail = event.userEmail();
+        String serviceTitle = event.serviceTitre();
+
+        // 1. Rappel 7 jours avant
+        if (!creationDate.isAfter(reservationDate.minusDays(7))) {
+            LocalDate reminder7dDate = reservationDate.minusDays(7);
+            if (reminder7dDate.isAfter(nowDate)) {
+                scheduleReminderAtFixedTime(userEmail, serviceTitle, event.dateDebut(),
+                                          reminder7dDate.atTime(8, 0), "7 jours avant");
+            } else {
+                sendReminder(userEmail, serviceTitle, event.dateDebut(), "7 jours avant");
+            }
+        }
+
+        // 2. Rappel 48h avant (converti en 2 jours)
+        if (!creationDate.isAfter(reservationDate.minusDays(2))) {
+            LocalDate reminder2dDate = reservationDate.minusDays(2);
+            if (reminder2dDate.isAfter(nowDate)) {
+                scheduleReminderAtFixedTime(userEmail, serviceTitle, event.dateDebut(),
+                                         reminder2dDate.atTime(8, 0), "48 heures avant");
+            } else {
+                sendReminder(userEmail, serviceTitle, event.dateDebut(), "48 heures avant");
+            }
+        }
+
+        // 3. Rappel 2h avant (gestion précise)
+        LocalDateTime reminder2h = event.dateDebut().minusHours(2);
+        if (event.dateCreation().isBefore(reminder2h)) {
+            if (reminder2h.isAfter(nowDateTime)) {
+                scheduleReminderAtFixedTime(userEmail, serviceTitle, event.dateDebut(),
+                                         reminder2h, "2 heures avant");
+            } else {
+                sendReminder(userEmail, serviceTitle, event.dateDebut(), "2 heures avant");
+            }
+        }
+    }
+
+    private void scheduleReminderAtFixedTime(String email, String service, LocalDateTime reservationDateTime,
+                                           LocalDateTime reminderTime, String reminderType) {
+        long delay = Duration.between(LocalDateTime.now(), reminderTime).toMillis();
+        scheduler.schedule(() ->
+            sendReminder(email, service, reservationDateTime, reminderType),
+            delay,
+            TimeUnit.MILLISECONDS
+        );
+        log.info("Rappel {} planifié pour {}", reminderType, reminderTime);
+    }
+
+    private void sendReminder(String email, String service, LocalDateTime date, String reminderType) {
+        String message = String.format(
+            "⏰ Rappel (%s) : '%s' prévu le %s",
+            reminderType,
+            service,
+            date.format(DateTimeFormatter.ofPattern("dd/MM à HH:mm"))
+        );
+        notificationService.sendNotificationToUser(email, message);
+        log.info("Notification envoyée : {}", message);
+    }
+}
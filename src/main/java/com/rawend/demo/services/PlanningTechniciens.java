@@ -0,0 +1,281 @@
+package com.rawend.demo.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.rawend.demo.Repository.AffectationTechnicienRepository;
+import com.rawend.demo.Repository.TechnicienEmploiRepository;
+import com.rawend.demo.dto.PlageAffectation;
+import com.rawend.demo.entity.JourRepos;
+import com.rawend.demo.entity.TechnicienEmploi;
+
+/**
+ * Emplois du temps des techniciens tenus en mémoire : horaires de chaque technicien et
+ * affectations triées par début. Chargés une fois depuis la base puis tenus à jour à
+ * chaque affectation, ils permettent de choisir un technicien sans requête par candidat.
+ */
+@Service
+public class PlanningTechniciens {
+
+    /** Critère de choix entre plusieurs techniciens disponibles. */
+    public enum Politique {
+        // Le moins de minutes affectées sur la journée
+        MOINS_CHARGE,
+        // Libre depuis le plus longtemps (sa dernière intervention s'est terminée le plus tôt)
+        PREMIER_LIBRE,
+        // Le plus petit temps mort avant l'intervention, pour garder les journées compactes
+        PLUS_PETIT_ECART,
+        // Le plus court trajet depuis l'intervention précédente de la journée
+        PLUS_PROCHE
+    }
+
+    // Une prestation ne dure jamais plus d'une journée
+    private static final long DUREE_MAX_HEURES = 24;
+
+    private static final Comparator<Plage> ORDRE_PLAGES =
+        Comparator.comparing(Plage::debut).thenComparing(Plage::reservationId);
+
+    @Autowired
+    private AffectationTechnicienRepository affectationTechnicienRepository;
+
+    @Autowired
+    private TechnicienEmploiRepository technicienEmploiRepository;
+
+    private record Horaires(JourRepos jourRepos, LocalTime heureDebut, LocalTime heureFin) {
+    }
+
+    private record Plage(Long reservationId, Long technicienId, LocalDateTime debut, LocalDateTime fin,
+                         GeoUtils.Position position) {
+    }
+
+    // Parcourus dans l'ordre des identifiants pour départager les égalités
+    private TreeMap<Long, Horaires> horaires;
+
+    private final Map<Long, NavigableSet<Plage>> plagesParTechnicien = new HashMap<>();
+    private final Map<Long, Plage> plageParReservation = new HashMap<>();
+    private boolean charge = false;
+
+    /**
+     * Choisit un technicien qui travaille ce jour-là, dont les horaires couvrent [debut, fin[
+     * et qui peut enchaîner avec ses interventions voisines, trajets compris, puis lui
+     * réserve la plage.
+     *
+     * @param position lieu de l'intervention, {@code null} s'il est inconnu (trajets ignorés)
+     * @return l'identifiant du technicien retenu, ou {@code null} si aucun n'est disponible
+     */
+    public synchronized Long reserver(Long reservationId, LocalDateTime debut, LocalDateTime fin,
+                                      GeoUtils.Position position, Politique politique) {
+        return reserver(reservationId, debut, fin, position, politique, Set.of());
+    }
+
+    /** Comme {@link #reserver(Long, LocalDateTime, LocalDateTime, GeoUtils.Position, Politique)}, sans les techniciens exclus. */
+    public synchronized Long reserver(Long reservationId, LocalDateTime debut, LocalDateTime fin,
+                                      GeoUtils.Position position, Politique politique, Set<Long> exclus) {
+        chargerSiNecessaire();
+
+        Long retenu = null;
+        long meilleurScore = Long.MAX_VALUE;
+        for (Map.Entry<Long, Horaires> entry : horaires.entrySet()) {
+            Long technicienId = entry.getKey();
+            if (exclus.contains(technicienId) || !couvre(entry.getValue(), debut, fin)
+                    || chevauche(technicienId, reservationId, debut, fin, position)) {
+                continue;
+            }
+            long score = score(politique, technicienId, entry.getValue(), debut, position);
+            if (score < meilleurScore) {
+                meilleurScore = score;
+                retenu = technicienId;
+            }
+        }
+
+        if (retenu != null) {
+            enregistrer(reservationId, retenu, debut, fin, position);
+        }
+        return retenu;
+    }
+
+    public synchronized boolean estDisponible(Long technicienId, Long reservationId, LocalDateTime debut, LocalDateTime fin,
+                                              GeoUtils.Position position) {
+        chargerSiNecessaire();
+        Horaires h = horaires.get(technicienId);
+        return h != null && couvre(h, debut, fin) && !chevauche(technicienId, reservationId, debut, fin, position);
+    }
+
+    /**
+     * Vrai si le technicien peut rejoindre l'intervention à temps depuis la précédente et
+     * repartir à temps pour la suivante. Les horaires et jours de repos ne sont pas vérifiés.
+     */
+    public synchronized boolean peutEnchainer(Long technicienId, Long reservationId, LocalDateTime debut, LocalDateTime fin,
+                                              GeoUtils.Position position) {
+        chargerSiNecessaire();
+        return !chevauche(technicienId, reservationId, debut, fin, position);
+    }
+
+    /** Enregistre (ou déplace) l'affectation d'une réservation après une écriture en base. */
+    public synchronized void enregistrer(Long reservationId, Long technicienId, LocalDateTime debut, LocalDateTime fin,
+                                         GeoUtils.Position position) {
+        chargerSiNecessaire();
+        ajouter(new Plage(reservationId, technicienId, debut, fin, position));
+        invaliderSiAnnulation();
+    }
+
+    public synchronized void retirer(Long reservationId) {
+        chargerSiNecessaire();
+        supprimer(reservationId);
+        invaliderSiAnnulation();
+    }
+
+    /** À appeler quand un emploi du temps change : les horaires seront relus au prochain choix. */
+    public synchronized void rechargerHoraires() {
+        horaires = null;
+    }
+
+    private boolean couvre(Horaires h, LocalDateTime debut, LocalDateTime fin) {
+        if (h.jourRepos() != null && h.jourRepos() == JourRepos.values()[debut.getDayOfWeek().getValue() - 1]) {
+            return false;
+        }
+        if (!fin.toLocalDate().equals(debut.toLocalDate())) {
+            return false;
+        }
+        return !debut.toLocalTime().isBefore(h.heureDebut()) && !fin.toLocalTime().isAfter(h.heureFin());
+    }
+
+    // Chevauchement, ou trajet trop long depuis l'intervention précédente ou vers la suivante
+    private boolean chevauche(Long technicienId, Long reservationId, LocalDateTime debut, LocalDateTime fin,
+                              GeoUtils.Position position) {
+        for (Plage plage : plagesAvant(technicienId, debut.minusHours(DUREE_MAX_HEURES), fin)) {
+            if (plage.reservationId().equals(reservationId)) {
+                continue;
+            }
+            if (plage.fin().plusMinutes(GeoUtils.minutesTrajet(plage.position(), position)).isAfter(debut)) {
+                return true;
+            }
+        }
+
+        NavigableSet<Plage> plages = plagesParTechnicien.get(technicienId);
+        if (plages != null) {
+            for (Plage suivante : plages.tailSet(new Plage(Long.MIN_VALUE, technicienId, fin, fin, null), true)) {
+                if (!suivante.reservationId().equals(reservationId)) {
+                    return fin.plusMinutes(GeoUtils.minutesTrajet(position, suivante.position())).isAfter(suivante.debut());
+                }
+            }
+        }
+        return false;
+    }
+
+    private long score(Politique politique, Long technicienId, Horaires h, LocalDateTime debut, GeoUtils.Position position) {
+        LocalDate jour = debut.toLocalDate();
+        switch (politique) {
+            case MOINS_CHARGE: {
+                long minutes = 0;
+                for (Plage plage : plagesAvant(technicienId, jour.atStartOfDay(), jour.plusDays(1).atStartOfDay())) {
+                    minutes += Duration.between(plage.debut(), plage.fin()).toMinutes();
+                }
+                return minutes;
+            }
+            case PREMIER_LIBRE:
+                return SaturationEngine.versMinutes(derniereFin(technicienId, jour.atTime(h.heureDebut()), debut));
+            case PLUS_PROCHE: {
+                Plage precedente = precedente(technicienId, jour, debut);
+                return precedente != null ? GeoUtils.minutesTrajet(precedente.position(), position) : 0;
+            }
+            case PLUS_PETIT_ECART:
+            default:
+                return Duration.between(derniereFin(technicienId, jour.atTime(h.heureDebut()), debut), debut).toMinutes();
+        }
+    }
+
+    // Fin de la dernière intervention du jour terminée avant debut, sinon la prise de service
+    private LocalDateTime derniereFin(Long technicienId, LocalDateTime priseDeService, LocalDateTime debut) {
+        Plage precedente = precedente(technicienId, priseDeService.toLocalDate(), debut);
+        return precedente != null && precedente.fin().isAfter(priseDeService) ? precedente.fin() : priseDeService;
+    }
+
+    // Intervention du jour terminée le plus tard avant debut
+    private Plage precedente(Long technicienId, LocalDate jour, LocalDateTime debut) {
+        Plage precedente = null;
+        for (Plage plage : plagesAvant(technicienId, jour.atStartOfDay(), debut)) {
+            if (!plage.fin().isAfter(debut) && (precedente == null || plage.fin().isAfter(precedente.fin()))) {
+                precedente = plage;
+            }
+        }
+        return precedente;
+    }
+
+    // Plages dont le début est dans [du, au[
+    private NavigableSet<Plage> plagesAvant(Long technicienId, LocalDateTime du, LocalDateTime au) {
+        NavigableSet<Plage> plages = plagesParTechnicien.get(technicienId);
+        if (plages == null) {
+            return new TreeSet<>(ORDRE_PLAGES);
+        }
+        return plages.subSet(new Plage(Long.MIN_VALUE, technicienId, du, du, null), true,
+            new Plage(Long.MIN_VALUE, technicienId, au, au, null), false);
+    }
+
+    private void ajouter(Plage plage) {
+        supprimer(plage.reservationId());
+        plagesParTechnicien.computeIfAbsent(plage.technicienId(), t -> new TreeSet<>(ORDRE_PLAGES)).add(plage);
+        plageParReservation.put(plage.reservationId(), plage);
+    }
+
+    private void supprimer(Long reservationId) {
+        Plage ancienne = plageParReservation.remove(reservationId);
+        if (ancienne != null) {
+            plagesParTechnicien.get(ancienne.technicienId()).remove(ancienne);
+        }
+    }
+
+    // Si la transaction échoue, l'état en mémoire ne correspond plus à la base : on le relira
+    private void invaliderSiAnnulation() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        invalider();
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized void invalider() {
+        charge = false;
+        horaires = null;
+    }
+
+    private void chargerSiNecessaire() {
+        if (horaires == null) {
+            TreeMap<Long, Horaires> nouveaux = new TreeMap<>();
+            for (TechnicienEmploi tech : technicienEmploiRepository.findAll()) {
+                nouveaux.put(tech.getId(), new Horaires(tech.getJourRepos(),
+                    tech.getHeureDebut() != null ? tech.getHeureDebut() : LocalTime.MIN,
+                    tech.getHeureFin() != null ? tech.getHeureFin() : LocalTime.MAX));
+            }
+            horaires = nouveaux;
+        }
+        if (!charge) {
+            plagesParTechnicien.clear();
+            plageParReservation.clear();
+            for (PlageAffectation plage : affectationTechnicienRepository.findAllPlages()) {
+                ajouter(new Plage(plage.getReservationId(), plage.getTechnicienId(), plage.getDateDebut(), plage.getDateFin(),
+                    GeoUtils.position(plage.getLatitude(), plage.getLongitude())));
+            }
+            charge = true;
+        }
+    }
+}
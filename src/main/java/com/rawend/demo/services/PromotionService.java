@@ -15,11 +15,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.Date;
 
 @Service
 public class PromotionService {
@@ -33,6 +30,10 @@ public class PromotionService {
     private ServiceService serviceService;
     @Autowired
     private ServiceRepository serviceRepository;
+    @Autowired
+    private CodesPromo codesPromo;
+    @Autowired
+    private IndexPromotions indexPromotions;
     public List<PromotionEntity> obtenirToutesLesPromotions() {
         return promotionRepository.findAllWithServices();
     }
@@ -76,14 +77,14 @@ public class PromotionService {
     }
 
     public boolean estServiceEligible(Long promotionId, Long serviceId) {
-        Optional<ServiceEntity> serviceOpt = serviceRepository.findById(serviceId);
-        
-        if (serviceOpt.isPresent()) {
-            ServiceEntity service = serviceOpt.get();
-            return service.getPromotion() != null && service.getPromotion().getId().equals(promotionId);
-        }
-        
-        return false;
+        return serviceRepository.findById(serviceId)
+                .map(service -> estServiceEligible(promotionId, service))
+                .orElse(false);
+    }
+
+    // Pour un service déjà chargé par l'appelant
+    public boolean estServiceEligible(Long promotionId, ServiceEntity service) {
+        return service.getPromotion() != null && service.getPromotion().getId().equals(promotionId);
     }
 
 
@@ -123,47 +124,18 @@ public class PromotionService {
 
  
     public PromotionEntity findActivePromotion() {
-        LocalDate today = LocalDate.now();
-        return promotionRepository.findAll().stream()
-                .filter(promo -> promo.getActif() && 
-                                 !convertToLocalDate(promo.getDateDebut()).isAfter(today) && 
-                                 !convertToLocalDate(promo.getDateFin()).isBefore(today))
-                .findFirst()
-                .orElse(null); 
-    }
-    public double calculerPrixAvecReduction(ServiceEntity service, PromotionEntity promo) {
-        double prixInitial = service.getPrix();
-
-        if (service.getPromotion() != null) {
-            promo = service.getPromotion();  
-        }
-
-        if (promo != null) {
-            if (promo.getTypeReduction() == TypeReduction.POURCENTAGE) {
-                return prixInitial - (prixInitial * promo.getValeurReduction() / 100);
-            }
-
-            if (promo.getTypeReduction() == TypeReduction.MONTANT_FIXE) {
-                return prixInitial - promo.getValeurReduction();
-            }
-        }
-
-        return prixInitial;
+        return premiereActive();
     }
    
 
     public PromotionEntity trouverParCode(String codePromo) {
-        return promotionRepository.findByCodePromo(codePromo)
-                .filter(promo -> promo.getActif() &&
-                        !convertToLocalDate(promo.getDateDebut()).isAfter(LocalDate.now()) &&
-                        !convertToLocalDate(promo.getDateFin()).isBefore(LocalDate.now()))
+        return Optional.ofNullable(codesPromo.trouver(codePromo))
+                .filter(promo -> IndexPromotions.estActive(promo.getActif(), promo.getDateDebut(),
+                        promo.getDateFin(), LocalDate.now()))
                 .orElse(null);
     }
 
 
-    private LocalDate convertToLocalDate(Date date) {
-        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-    }
 
    
     public void supprimerPromotion(Long promotionId) {
@@ -174,18 +146,13 @@ public class PromotionService {
         return promotionRepository.findById(promotionId).orElse(null);
     }
     public PromotionEntity trouverPromoActive() {
-     
-        List<PromotionEntity> promotionsActives = promotionRepository.findAll().stream()
-            .filter(promo -> promo.getActif() && convertToLocalDate(promo.getDateDebut()).isBefore(LocalDate.now()) 
-                             && convertToLocalDate(promo.getDateFin()).isAfter(LocalDate.now()))
-            .collect(Collectors.toList());
-
-        if (promotionsActives.isEmpty()) {
-            return null;  
-        }
+        return premiereActive();
+    }
 
-      
-        return promotionsActives.get(0);  
+    // Même règle des bornes pour les deux méthodes : celle de l'index des promotions
+    private PromotionEntity premiereActive() {
+        List<Long> actives = indexPromotions.actives(LocalDate.now());
+        return actives.isEmpty() ? null : promotionRepository.findById(actives.get(0)).orElse(null);
     }
    
     public List<ServiceEntity> obtenirServicesAvecPromotion(Long promotionId) {
@@ -0,0 +1,16 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publié dans la transaction de création d'une réservation ; les notifications aux
+ * administrateurs et les rappels du client ne sont traités qu'une fois celle-ci validée.
+ */
+public record ReservationCreeeEvent(
+    Long reservationId,
+    String userEmail,
+    String serviceTitre,
+    LocalDateTime dateDebut,
+    LocalDateTime dateFin,
+    LocalDateTime dateCreation
+) {}
@@ -1,39 +1,36 @@
 package com.rawend.demo.services;
 
+import com.rawend.demo.dto.AffectationCommande;
+import com.rawend.demo.dto.CreneauReservation;
 import com.rawend.demo.dto.ReservationRequest;
+import com.rawend.demo.dto.VerificationCreneau;
 import com.rawend.demo.entity.*;
 import com.rawend.demo.Repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.DayOfWeek;
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -52,30 +49,43 @@ public class ReservationService {
     @Autowired
     private TechnicienEmploiRepository technicienEmploiRepository;
     @Autowired
-    private PromotionService promotionService;
+    private TarifsServices tarifsServices;
     @Autowired
     private NotificationService notificationService;
     
     @Autowired
     private AffectationTechnicienRepository affectationTechnicienRepository;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    @Autowired
+    private OccupationIndex occupationIndex;
+    @Autowired
+    private SlotUsageService slotUsageService;
+    @Autowired
+    private RosterCapacite rosterCapacite;
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+    @Autowired
+    private DiffusionDisponibilites diffusionDisponibilites;
+    @Autowired
+    private PlanningTechniciens planningTechniciens;
+    @Autowired
+    private VerrousTechniciens verrousTechniciens;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private IdempotenceReservations idempotenceReservations;
+    @Autowired
+    private RetenuesCreneaux retenuesCreneaux;
+
+    // Affectation automatique d'un technicien à la création (désactivée par défaut)
+    @Value("${dispatch.automatique:false}")
+    private boolean dispatchAutomatique;
+    @Value("${dispatch.politique:MOINS_CHARGE}")
+    private PlanningTechniciens.Politique politiqueDispatch;
 
     public List<ReservationEntity> getReservationsByClientEmail(String email) {
         return reservationRepository.findByUserEmailOrderByDateCreationDesc(email);
     }
     
-    private DayOfWeek convertJourReposToDayOfWeek(JourRepos jourRepos) {
-        switch (jourRepos) {
-            case LUNDI: return DayOfWeek.MONDAY;
-            case MARDI: return DayOfWeek.TUESDAY;
-            case MERCREDI: return DayOfWeek.WEDNESDAY;
-            case JEUDI: return DayOfWeek.THURSDAY;
-            case VENDREDI: return DayOfWeek.FRIDAY;
-            case SAMEDI: return DayOfWeek.SATURDAY;
-            case DIMANCHE: return DayOfWeek.SUNDAY;
-            default: return null;
-        }
-    }
   
  // Dans ReservationService.java
     public ReservationEntity getReservationByIdAndEmail(Long reservationId, String email) {
@@ -85,7 +95,18 @@ public class ReservationService {
                 "Réservation non trouvée ou accès non autorisé"
             ));
     }
+    @Transactional
     public Map<String, Object> createReservation(ReservationRequest request, Authentication authentication) {
+        return createReservation(request, authentication, null);
+    }
+
+    /**
+     * @param cleIdempotence clé {@code Idempotency-Key} du client, {@code null} si absente ;
+     *                       la réponse est alors enregistrée dans la même transaction
+     */
+    @Transactional
+    public Map<String, Object> createReservation(ReservationRequest request, Authentication authentication,
+                                                 String cleIdempotence) {
 
         String email = authentication.getName();
         User user = userRepository.findByEmail(email)
@@ -94,65 +115,58 @@ public class ReservationService {
         ServiceEntity service = serviceRepository.findById(request.serviceId())
             .orElseThrow(() -> new RuntimeException("Service non trouvé"));
 
-        Double prixFinal = service.getPrix();
         String duree = service.getDuree();
 
-        
-        PromotionEntity promo = service.getPromotion();
+        // Admission : capacité déjà acquise par une retenue du client pour ce créneau, sinon
+        // prise ici jusqu'au commit (techniciens en repos compris : capacité nulle)
+        if (request.dateReservation() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date de réservation obligatoire");
+        }
+        long[] creneaux = creneaux(request.dateReservation(), DureeUtils.enMinutes(duree));
+        // État de départ mémorisé avant que l'admission ne compte déjà la réservation
+        diffusionDisponibilites.signaler(request.dateReservation(),
+            DureeUtils.calculerDateFin(request.dateReservation(), duree));
+        // Retenue réclamée de façon atomique : deux créations avec le même retenueId ne la
+        // consomment pas toutes les deux, la seconde repasse par l'admission
+        RetenuesCreneaux.Retenue retenue = retenuesCreneaux.consommer(request.retenueId(), email, creneaux[0], creneaux[1]);
+        if (retenue == null && !retenuesCreneaux.admettre(creneaux[0], creneaux[1], rosterCapacite::capacite)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Créneau complet");
+        }
 
-        if (request.codePromo() != null && !request.codePromo().isEmpty()) {
-            
-            promo = promotionService.trouverParCode(request.codePromo());
-            if (promo != null && promo.getActif() && promotionService.estServiceEligible(promo.getId(), service.getId())) {
-            	   
-            	 LocalDate today = LocalDate.now();  	
-            	 LocalDateTime startOfDay = today.atStartOfDay();
-                   LocalDateTime endOfDay = today.atTime(23, 59, 59);
-                   LocalDateTime promoStart = convertToLocalDateTime(promo.getDateDebut()).withHour(0).withMinute(0).withSecond(0);
-                   LocalDateTime promoEnd = convertToLocalDateTime(promo.getDateFin()).withHour(23).withMinute(59).withSecond(59);
-
-                
-                if (!startOfDay.isBefore(promoStart) && !endOfDay.isAfter(promoEnd)) {
-                    prixFinal = promo.getTypeReduction() == TypeReduction.POURCENTAGE
-                        ? service.getPrix() * (1 - promo.getValeurReduction() / 100)
-                        : service.getPrix() - promo.getValeurReduction();
-                }
-            }
-        } else if (promo != null && (promo.getCodePromo() == null || promo.getCodePromo().isEmpty())) {
-        
-            LocalDate today = LocalDate.now();
-            LocalDateTime startOfDay = today.atStartOfDay();
-            LocalDateTime endOfDay = today.atTime(23, 59, 59);
-            LocalDateTime promoStart = convertToLocalDateTime(promo.getDateDebut()).withHour(0).withMinute(0).withSecond(0);
-            LocalDateTime promoEnd = convertToLocalDateTime(promo.getDateFin()).withHour(23).withMinute(59).withSecond(59);
-
-            if (!promoStart.isAfter(endOfDay) && !promoEnd.isBefore(startOfDay)) {
-                prixFinal = promo.getTypeReduction() == TypeReduction.POURCENTAGE
-                    ? service.getPrix() * (1 - promo.getValeurReduction() / 100)
-                    : service.getPrix() - promo.getValeurReduction();
-            }
+        // Prix du jour lu dans la grille : promotion du service, automatique ou par son code
+        Double prixFinal = tarifsServices.prix(service.getId(), request.codePromo());
+        if (prixFinal == null) {
+            prixFinal = service.getPrix();
         }
 
         ReservationEntity reservation = new ReservationEntity();
         reservation.setUser(user);
         reservation.setStatus(ReservationStatus.EN_ATTENTE); 
         reservation.setService(service);
-     // Formatage du prix avant l'insertion
-        double prixArrondi = BigDecimal.valueOf(prixFinal)
-                                       .setScale(3, RoundingMode.HALF_UP)
-                                       .doubleValue();
-
-        reservation.setPrix(prixArrondi); 
+        reservation.setPrix(prixFinal);
         reservation.setDuree(duree);
         reservation.setModePaiement(request.modePaiement());
         reservation.setLocalisation(request.localisation());
+        GeoUtils.Position position = GeoUtils.parser(request.localisation());
+        if (position != null) {
+            reservation.setLatitude(position.latitude());
+            reservation.setLongitude(position.longitude());
+        }
         reservation.setDateReservation(request.dateReservation());
         reservation.setDateCreation(LocalDateTime.now());
         reservation.setEmail(email);
         reservation.setPhone(user.getPhone());
         reservation.setTitreService(service.getTitre());
         ReservationEntity savedReservation = reservationRepository.save(reservation);
-        scheduleNotificationReminders(savedReservation);
+        indexerApresCommit(savedReservation, retenue);
+        slotUsageService.rafraichir(savedReservation.getDateReservation(),
+            DureeUtils.calculerDateFin(savedReservation.getDateReservation(), savedReservation.getDuree()));
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+        Long technicienId = dispatchAutomatique ? dispatcher(savedReservation) : null;
+        eventPublisher.publishEvent(new ReservationCreeeEvent(savedReservation.getId(), email,
+            savedReservation.getTitreService(), savedReservation.getDateReservation(),
+            DureeUtils.calculerDateFin(savedReservation.getDateReservation(), savedReservation.getDuree()),
+            savedReservation.getDateCreation()));
         Map<String, Object> response = new HashMap<>();
         response.put("reservationId", savedReservation.getId());
         response.put("userEmail", savedReservation.getEmail());
@@ -166,86 +180,137 @@ public class ReservationService {
         response.put("dateCreation", savedReservation.getDateCreation());
         response.put("serviceId", service.getId());
         response.put("userId", user.getId());
+        response.put("status", savedReservation.getStatus());
+        response.put("technicienId", technicienId);
 
+        if (cleIdempotence != null) {
+            idempotenceReservations.enregistrer(cleIdempotence, email, savedReservation.getId(), response);
+        }
         return response;
     }
-    private void scheduleNotificationReminders(ReservationEntity reservation) {
-        LocalDate nowDate = LocalDate.now();
-        LocalDateTime nowDateTime = LocalDateTime.now();
-        LocalDate reservationDate = reservation.getDateReservation().toLocalDate();
-        LocalDate creationDate = reservation.getDateCreation().toLocalDate();
-        
-        String userEmail = reservation.getUser().getEmail();
-        String serviceTitle = reservation.getTitreService();
-
-        // 1. Rappel 7 jours avant
-        if (!creationDate.isAfter(reservationDate.minusDays(7))) {
-            LocalDate reminder7dDate = reservationDate.minusDays(7);
-            if (reminder7dDate.isAfter(nowDate)) {
-                scheduleReminderAtFixedTime(userEmail, serviceTitle, reservation.getDateReservation(), 
-                                          reminder7dDate.atTime(8, 0), "7 jours avant");
-            } else {
-                sendReminder(userEmail, serviceTitle, reservation.getDateReservation(), "7 jours avant");
-            }
+
+    /**
+     * Retient pour quelques minutes la capacité nécessaire à ce service à cette date, le
+     * temps que le client confirme sa réservation (en renvoyant {@code retenueId}).
+     */
+    public Map<String, Object> retenirCreneau(Long serviceId, LocalDateTime dateTime, Authentication authentication) {
+        ServiceEntity service = serviceRepository.findById(serviceId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Service non trouvé"));
+        if (dateTime == null || dateTime.isBefore(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date invalide");
         }
 
-        // 2. Rappel 48h avant (converti en 2 jours)
-        if (!creationDate.isAfter(reservationDate.minusDays(2))) {
-            LocalDate reminder2dDate = reservationDate.minusDays(2);
-            if (reminder2dDate.isAfter(nowDate)) {
-                scheduleReminderAtFixedTime(userEmail, serviceTitle, reservation.getDateReservation(),
-                                         reminder2dDate.atTime(8, 0), "48 heures avant");
-            } else {
-                sendReminder(userEmail, serviceTitle, reservation.getDateReservation(), "48 heures avant");
-            }
+        long[] creneaux = creneaux(dateTime, DureeUtils.enMinutes(service.getDuree()));
+        RetenuesCreneaux.Retenue retenue = retenuesCreneaux.retenir(authentication.getName(), creneaux[0], creneaux[1],
+            rosterCapacite::capacite);
+        if (retenue == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Créneau complet");
         }
 
-        // 3. Rappel 2h avant (gestion précise)
-        LocalDateTime reminder2h = reservation.getDateReservation().minusHours(2);
-        if (reservation.getDateCreation().isBefore(reminder2h)) {
-            if (reminder2h.isAfter(nowDateTime)) {
-                scheduleReminderAtFixedTime(userEmail, serviceTitle, reservation.getDateReservation(),
-                                         reminder2h, "2 heures avant");
-            } else {
-                sendReminder(userEmail, serviceTitle, reservation.getDateReservation(), "2 heures avant");
-            }
+        Map<String, Object> response = new HashMap<>();
+        response.put("retenueId", retenue.id());
+        response.put("dateDebut", dateTime);
+        response.put("dateFin", DureeUtils.calculerDateFin(dateTime, service.getDuree()));
+        response.put("expiration", retenue.expiration());
+        return response;
+    }
+
+    public void libererRetenue(String retenueId, Authentication authentication) {
+        if (retenuesCreneaux.trouver(retenueId, authentication.getName()) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Retenue introuvable ou expirée");
         }
+        retenuesCreneaux.liberer(retenueId);
     }
 
-    private void scheduleReminderAtFixedTime(String email, String service, LocalDateTime reservationDateTime,
-                                           LocalDateTime reminderTime, String reminderType) {
-        long delay = Duration.between(LocalDateTime.now(), reminderTime).toMillis();
-        scheduler.schedule(() -> 
-            sendReminder(email, service, reservationDateTime, reminderType),
-            delay,
-            TimeUnit.MILLISECONDS
-        );
-        log.info("Rappel {} planifié pour {}", reminderType, reminderTime);
+    // Créneaux [premier, dernier[ occupés : au moins un, un créneau entamé compte en entier
+    private static long[] creneaux(LocalDateTime debut, int dureeMinutes) {
+        long premier = OccupationIndex.creneauDebut(debut);
+        long dernier = Math.max(OccupationIndex.creneauFin(debut.plusMinutes(dureeMinutes)), premier + 1);
+        return new long[] { premier, dernier };
     }
 
-    private void sendReminder(String email, String service, LocalDateTime date, String reminderType) {
-        String message = String.format(
-            "⏰ Rappel (%s) : '%s' prévu le %s",
-            reminderType,
-            service,
-            date.format(DateTimeFormatter.ofPattern("dd/MM à HH:mm"))
-        );
-        notificationService.sendNotificationToUser(email, message);
-        log.info("Notification envoyée : {}", message);
+    /**
+     * L'index partagé ne voit la réservation qu'une fois validée : un rollback (clé
+     * d'idempotence concurrente, etc.) n'y laisse rien. Jusque-là elle est couverte par la
+     * capacité d'admission, relâchée en {@code afterCompletion}, donc après cet ajout ; la
+     * capacité d'une retenue consommée n'est rendue qu'après l'ajout (la retenue est remise
+     * en place en cas d'échec, voir {@link RetenuesCreneaux#consommer}).
+     */
+    private void indexerApresCommit(ReservationEntity reservation, RetenuesCreneaux.Retenue retenue) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                occupationIndex.indexer(reservation);
+                if (retenue != null) {
+                    retenuesCreneaux.rendre(retenue);
+                }
+            }
+        });
     }
 
-    
-    private LocalDateTime convertToLocalDateTime(Date date) {
-        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+    // Une affectation libre sur le papier peut être intenable à cause des trajets entre interventions
+    private void verifierTrajets(Long technicienId, ReservationEntity reservation, LocalDateTime dateDebut, LocalDateTime dateFin) {
+        if (!planningTechniciens.peutEnchainer(technicienId, reservation.getId(), dateDebut, dateFin, position(reservation))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Le technicien ne peut pas rejoindre cette intervention à temps depuis ou vers ses autres interventions");
+        }
+    }
+
+    private static GeoUtils.Position position(ReservationEntity reservation) {
+        return GeoUtils.position(reservation.getLatitude(), reservation.getLongitude());
     }
-    public void modifierAffectationTechnicien(Long reservationId, String emailTechnicien) {
-        ReservationEntity reservation = reservationRepository.findById(reservationId)
+
+    // Affecte un technicien dans la transaction de création ; sans candidat la réservation reste EN_ATTENTE
+    private Long dispatcher(ReservationEntity reservation) {
+        LocalDateTime dateDebut = reservation.getDateReservation();
+        LocalDateTime dateFin = DureeUtils.calculerDateFin(dateDebut, reservation.getDuree());
+
+        Long technicienId = planningTechniciens.reserver(reservation.getId(), dateDebut, dateFin,
+            position(reservation), politiqueDispatch);
+        if (technicienId == null) {
+            log.info("Aucun technicien disponible pour la réservation {}", reservation.getId());
+            return null;
+        }
+
+        // Le planning en mémoire est propre à cette instance : on confirme en base sous verrou
+        verrousTechniciens.verrouiller(technicienId);
+        if (affectationTechnicienRepository.existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(technicienId, dateFin, dateDebut)) {
+            planningTechniciens.retirer(reservation.getId());
+            log.info("Technicien {} déjà occupé, réservation {} laissée en attente", technicienId, reservation.getId());
+            return null;
+        }
+
+        TechnicienEmploi technicien = technicienEmploiRepository.findById(technicienId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Technicien introuvable"));
+        AffectationTechnicien affectation = new AffectationTechnicien();
+        affectation.setTechnicien(technicien);
+        affectation.setReservation(reservation);
+        affectation.setDateDebut(dateDebut);
+        affectation.setDateFin(dateFin);
+        affectation.setUsername(technicien.getUser().getUsername());
+        affectationTechnicienRepository.save(affectation);
+
+        reservation.setStatus(ReservationStatus.EN_COURS);
+        reservation.setTechnicienId(technicienId);
+        reservationRepository.save(reservation);
+        eventPublisher.publishEvent(new TechnicienAffecteEvent(reservation.getId(), technicien.getEmail(),
+            null, dateDebut, dateFin, false));
+        log.info("Réservation {} affectée automatiquement au technicien {}", reservation.getId(), technicienId);
+        return technicienId;
+    }
+    /**
+     * Affecte (ou réaffecte) un technicien à une réservation : chaque entité est lue une seule
+     * fois, les écritures partent au commit et les notifications sont envoyées ensuite par
+     * {@link NotificationsAffectation}.
+     */
+    @Transactional
+    public void affecter(AffectationCommande commande) {
+        ReservationEntity reservation = reservationRepository.findById(commande.reservationId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Réservation introuvable"));
 
-        TechnicienEmploi technicien = technicienEmploiRepository.findByUserEmail(emailTechnicien)
+        TechnicienEmploi technicien = technicienEmploiRepository.findByUserEmail(commande.emailTechnicien())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Technicien introuvable"));
 
-        
         LocalDate reservationDate = reservation.getDateReservation().toLocalDate();
         JourRepos jourReposTechnicien = technicien.getJourRepos();
         JourRepos jourReservation = convertirJourEnFrancais(reservationDate.getDayOfWeek().toString());
@@ -254,14 +319,10 @@ public class ReservationService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Le technicien est en repos le " + jourReservation);
         }
 
-        String dureeStr = reservation.getDuree().toLowerCase(); 
-        int dureeMinutes = Integer.parseInt(dureeStr.replaceAll("[^0-9]", "")) * (dureeStr.contains("h") ? 60 : 1);
-
-
         LocalDateTime dateDebut = reservation.getDateReservation();
-        LocalDateTime dateFin = dateDebut.plusMinutes(dureeMinutes);
+        LocalDateTime dateFin = DureeUtils.calculerDateFin(dateDebut, reservation.getDuree());
 
-      
+        // Vérification des horaires de travail du technicien
         LocalTime heureDebutTravail = technicien.getHeureDebut();
         LocalTime heureFinTravail = technicien.getHeureFin();
 
@@ -270,39 +331,43 @@ public class ReservationService {
                     "La réservation dépasse les horaires de travail du technicien (" + heureDebutTravail + " - " + heureFinTravail + ")");
         }
 
-       
+        // Vérification des conflits de réservation, sous le verrou du technicien tenu jusqu'au commit
+        verrousTechniciens.verrouiller(technicien.getId());
         boolean hasConflict = affectationTechnicienRepository.existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(
                 technicien.getId(), dateFin, dateDebut);
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        String formattedDateDebut = dateDebut.format(formatter);
-        String formattedDateFin = dateFin.format(formatter);
-    
-
         if (hasConflict) {
-        	throw new ResponseStatusException(
-        		    HttpStatus.BAD_REQUEST,
-        		    "Le technicien a  une réservation entre " + formattedDateDebut + " et " + formattedDateFin);}
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Le technicien a  une réservation entre " + dateDebut.format(formatter) + " et " + dateFin.format(formatter));
+        }
+        verifierTrajets(technicien.getId(), reservation, dateDebut, dateFin);
 
-        
-        List<AffectationTechnicien> affectations = affectationTechnicienRepository.findByReservationId(reservationId);
-        if (affectations.isEmpty()) {
+        List<AffectationTechnicien> affectations = affectationTechnicienRepository.findByReservationId(reservation.getId());
+        if (commande.remplacement() && affectations.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Affectation introuvable");
         }
-
- 
-        AffectationTechnicien affectation = affectations.get(0);
+        AffectationTechnicien affectation = affectations.isEmpty() ? new AffectationTechnicien() : affectations.get(0);
+        TechnicienEmploi ancienTechnicien = affectation.getTechnicien();
 
         affectation.setTechnicien(technicien);
+        affectation.setReservation(reservation);
         affectation.setDateDebut(dateDebut);
         affectation.setDateFin(dateFin);
         affectation.setUsername(technicien.getUser().getUsername());
         affectationTechnicienRepository.save(affectation);
 
+        // Réservation déjà gérée par la transaction : mise à jour écrite au commit
         reservation.setStatus(ReservationStatus.EN_COURS);
-        reservationRepository.save(reservation);
         reservation.setTechnicienId(technicien.getId());
-        reservationRepository.save(reservation);
+
+        planningTechniciens.enregistrer(reservation.getId(), technicien.getId(), dateDebut, dateFin, position(reservation));
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+
+        String ancienEmail = ancienTechnicien != null && !ancienTechnicien.getId().equals(technicien.getId())
+                ? ancienTechnicien.getEmail() : null;
+        eventPublisher.publishEvent(new TechnicienAffecteEvent(reservation.getId(), commande.emailTechnicien(),
+                ancienEmail, dateDebut, dateFin, commande.remplacement()));
     }
 
     @Transactional
@@ -340,6 +405,7 @@ public class ReservationService {
             reservation.setStatus(ReservationStatus.TERMINEE);
             reservation.setDateFinReelle(LocalDateTime.now());
             reservationRepository.save(reservation);
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
 
             // Notification aux admins
             String message = String.format(
@@ -375,74 +441,179 @@ public class ReservationService {
             throw e;
         }
     }
-    public void affecterTechnicienAReservation(Long reservationId, Long technicienId) {
-        ReservationEntity reservation = reservationRepository.findById(reservationId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Réservation introuvable"));
-
-        TechnicienEmploi technicien = technicienEmploiRepository.findById(technicienId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Technicien introuvable"));
-
-        LocalDate reservationDate = reservation.getDateReservation().toLocalDate();
-        JourRepos jourReposTechnicien = technicien.getJourRepos();
-        JourRepos jourReservation = convertirJourEnFrancais(reservationDate.getDayOfWeek().toString());
+    /**
+     * Affecte en une fois toutes les réservations EN_ATTENTE d'une journée. Les réservations
+     * sont prises par heure de début et chacune va au technicien disponible dont la
+     * dernière intervention se termine au plus près de son début (ordonnancement
+     * d'intervalles au plus juste), ce qui laisse les plus grands trous aux suivantes.
+     */
+    @Transactional
+    public Map<String, Object> affecterReservationsDuJour(LocalDate jour) {
+        List<ReservationEntity> enAttente = reservationRepository
+            .findByStatusAndDateReservationGreaterThanEqualAndDateReservationLessThanOrderByDateReservation(
+                ReservationStatus.EN_ATTENTE, jour.atStartOfDay(), jour.plusDays(1).atStartOfDay());
+
+        List<ReservationEntity> tries = new ArrayList<>(enAttente);
+        tries.sort(Comparator.comparing(ReservationEntity::getDateReservation)
+            .thenComparing(r -> DureeUtils.calculerDateFin(r.getDateReservation(), r.getDuree())));
+
+        Map<Long, TechnicienEmploi> techniciens = technicienEmploiRepository.findAll().stream()
+            .collect(Collectors.toMap(TechnicienEmploi::getId, t -> t));
+        verrousTechniciens.verrouillerTous(techniciens.keySet());
+
+        List<AffectationTechnicien> affectations = new ArrayList<>();
+        List<Map<String, Object>> affectees = new ArrayList<>();
+        List<Map<String, Object>> nonAffectees = new ArrayList<>();
+        for (ReservationEntity reservation : tries) {
+            LocalDateTime dateDebut = reservation.getDateReservation();
+            LocalDateTime dateFin = DureeUtils.calculerDateFin(dateDebut, reservation.getDuree());
+            Long technicienId = reserverConfirme(reservation, dateDebut, dateFin, Set.of());
+            TechnicienEmploi technicien = technicienId != null ? techniciens.get(technicienId) : null;
+
+            if (technicien == null) {
+                Map<String, Object> ligne = new HashMap<>();
+                ligne.put("reservationId", reservation.getId());
+                ligne.put("dateReservation", dateDebut);
+                ligne.put("motif", "Aucun technicien disponible");
+                nonAffectees.add(ligne);
+                continue;
+            }
 
-        if (jourReposTechnicien == jourReservation) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Le technicien est en repos le " + jourReservation);
+            AffectationTechnicien affectation = new AffectationTechnicien();
+            affectation.setTechnicien(technicien);
+            affectation.setReservation(reservation);
+            affectation.setDateDebut(dateDebut);
+            affectation.setDateFin(dateFin);
+            affectation.setUsername(technicien.getUser().getUsername());
+            affectations.add(affectation);
+            reservation.setStatus(ReservationStatus.EN_COURS);
+            reservation.setTechnicienId(technicienId);
+
+            Map<String, Object> ligne = new HashMap<>();
+            ligne.put("reservationId", reservation.getId());
+            ligne.put("technicienId", technicienId);
+            ligne.put("emailTechnicien", technicien.getEmail());
+            ligne.put("dateDebut", dateDebut);
+            ligne.put("dateFin", dateFin);
+            affectees.add(ligne);
+            eventPublisher.publishEvent(new TechnicienAffecteEvent(reservation.getId(), technicien.getEmail(),
+                null, dateDebut, dateFin, false));
         }
 
-        String dureeStr = reservation.getDuree().toLowerCase(); 
-
-        int dureeMinutes = 0;
-        if (dureeStr.contains("h")) { 
-            dureeMinutes = Integer.parseInt(dureeStr.replaceAll("[^0-9]", "")) * 60;
-        } else if (dureeStr.contains("min")) { 
-            dureeMinutes = Integer.parseInt(dureeStr.replaceAll("[^0-9]", ""));
-        } else { 
-            dureeMinutes = Integer.parseInt(dureeStr.replaceAll("[^0-9]", ""));
+        affectationTechnicienRepository.saveAll(affectations);
+        reservationRepository.saveAll(enAttente);
+        if (!affectations.isEmpty()) {
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
         }
+        log.info("Affectation du {} : {} affectées, {} sans technicien", jour, affectees.size(), nonAffectees.size());
 
-       
-        LocalDateTime dateDebut = reservation.getDateReservation();
-        LocalDateTime dateFin = dateDebut.plusMinutes(dureeMinutes);
+        Map<String, Object> rapport = new HashMap<>();
+        rapport.put("date", jour);
+        rapport.put("affectees", affectees);
+        rapport.put("nonAffectees", nonAffectees);
+        return rapport;
+    }
 
+    /**
+     * Choix du planning en mémoire, confirmé en base sous le verrou des techniciens : seule la
+     * base connaît les affectations validées par les autres instances. Un technicien occupé
+     * en base est écarté et le choix recommence sans lui. Les affectations de ce lot, pas
+     * encore écrites, sont connues du planning.
+     */
+    private Long reserverConfirme(ReservationEntity reservation, LocalDateTime dateDebut, LocalDateTime dateFin,
+                                  Set<Long> exclus) {
+        Set<Long> ecartes = new HashSet<>(exclus);
+        while (true) {
+            Long technicienId = planningTechniciens.reserver(reservation.getId(), dateDebut, dateFin,
+                position(reservation), PlanningTechniciens.Politique.PLUS_PETIT_ECART, ecartes);
+            if (technicienId == null || !affectationTechnicienRepository
+                    .existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(technicienId, dateFin, dateDebut)) {
+                return technicienId;
+            }
+            planningTechniciens.retirer(reservation.getId());
+            log.info("Technicien {} déjà occupé en base, écarté pour la réservation {}", technicienId, reservation.getId());
+            ecartes.add(technicienId);
+        }
+    }
 
-        // Vérification des horaires de travail du technicien
-        LocalTime heureDebutTravail = technicien.getHeureDebut();
-        LocalTime heureFinTravail = technicien.getHeureFin();
+    /**
+     * Redistribue aux autres techniciens les réservations EN_COURS d'un technicien indisponible
+     * entre {@code du} et {@code au} (inclus). Les réservations sans remplaçant repassent
+     * EN_ATTENTE. Toutes les écritures sont faites dans une seule transaction ; les
+     * remplaçants sont notifiés une fois celle-ci validée.
+     */
+    @Transactional
+    public Map<String, Object> reaffecterReservationsTechnicien(String emailTechnicien, LocalDate du, LocalDate au) {
+        TechnicienEmploi indisponible = technicienEmploiRepository.findByUserEmail(emailTechnicien)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Technicien introuvable"));
 
-        if (dateDebut.toLocalTime().isBefore(heureDebutTravail) || dateFin.toLocalTime().isAfter(heureFinTravail)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "La reservation depasse les horaires de travail du technicien (" + heureDebutTravail + " - " + heureFinTravail + ")");
-        }
-        
+        Map<Long, TechnicienEmploi> techniciens = technicienEmploiRepository.findAll().stream()
+            .collect(Collectors.toMap(TechnicienEmploi::getId, t -> t));
+        verrousTechniciens.verrouillerTous(techniciens.keySet());
 
-        // Vérification des conflits de réservation
-        boolean hasConflict = affectationTechnicienRepository.existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(
-                technicienId, dateFin, dateDebut);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        String formattedDateDebut = dateDebut.format(formatter);
-        String formattedDateFin = dateFin.format(formatter);
-    
+        List<AffectationTechnicien> affectations = affectationTechnicienRepository
+            .findByTechnicienIdAndDateDebutGreaterThanEqualAndDateDebutLessThanOrderByDateDebut(
+                indisponible.getId(), du.atStartOfDay(), au.plusDays(1).atStartOfDay());
 
-        if (hasConflict) {
-        	throw new ResponseStatusException(
-        		    HttpStatus.BAD_REQUEST,
-        		    "Le technicien a  une reservation entre " + formattedDateDebut + " et " + formattedDateFin);}
+        Set<Long> exclus = Set.of(indisponible.getId());
+        List<AffectationTechnicien> deplacees = new ArrayList<>();
+        List<AffectationTechnicien> retirees = new ArrayList<>();
+        List<ReservationEntity> reservations = new ArrayList<>();
+        List<Map<String, Object>> reaffectees = new ArrayList<>();
+        List<Map<String, Object>> nonReaffectees = new ArrayList<>();
 
-        // Création de l'affectation si tout est bon
-        AffectationTechnicien affectation = new AffectationTechnicien();
-        affectation.setTechnicien(technicien);
-        affectation.setReservation(reservation);
-        affectation.setDateDebut(dateDebut);
-        affectation.setDateFin(dateFin);
-        affectation.setUsername(technicien.getUser().getUsername());
-        reservation.setStatus(ReservationStatus.EN_COURS);
-        reservation.setTechnicienId(technicienId);
-        reservationRepository.save(reservation);
-        affectationTechnicienRepository.save(affectation);
+        for (AffectationTechnicien affectation : affectations) {
+            ReservationEntity reservation = affectation.getReservation();
+            if (reservation.getStatus() != ReservationStatus.EN_COURS) {
+                continue;
+            }
+            Long technicienId = reserverConfirme(reservation, affectation.getDateDebut(), affectation.getDateFin(), exclus);
+            TechnicienEmploi remplacant = technicienId != null ? techniciens.get(technicienId) : null;
+
+            Map<String, Object> ligne = new HashMap<>();
+            ligne.put("reservationId", reservation.getId());
+            ligne.put("dateDebut", affectation.getDateDebut());
+            ligne.put("dateFin", affectation.getDateFin());
+            if (remplacant == null) {
+                planningTechniciens.retirer(reservation.getId());
+                reservation.setStatus(ReservationStatus.EN_ATTENTE);
+                reservation.setTechnicienId(null);
+                retirees.add(affectation);
+                ligne.put("motif", "Aucun technicien disponible");
+                nonReaffectees.add(ligne);
+            } else {
+                affectation.setTechnicien(remplacant);
+                affectation.setUsername(remplacant.getUser().getUsername());
+                reservation.setTechnicienId(technicienId);
+                deplacees.add(affectation);
+                ligne.put("technicienId", technicienId);
+                ligne.put("emailTechnicien", remplacant.getEmail());
+                reaffectees.add(ligne);
+                // Le technicien indisponible reçoit un récapitulatif unique, publié plus bas
+                eventPublisher.publishEvent(new TechnicienAffecteEvent(reservation.getId(), remplacant.getEmail(),
+                    null, affectation.getDateDebut(), affectation.getDateFin(), false));
+            }
+            reservations.add(reservation);
+        }
 
-        reservation.setTechnicienId(technicienId);
-        reservationRepository.save(reservation);
+        affectationTechnicienRepository.saveAll(deplacees);
+        affectationTechnicienRepository.deleteAllInBatch(retirees);
+        reservationRepository.saveAll(reservations);
+        if (!reservations.isEmpty()) {
+            versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+        }
+        if (!reservations.isEmpty()) {
+            eventPublisher.publishEvent(new TechnicienRetireEvent(indisponible.getEmail(), reservations.size(), du, au));
+        }
+        log.info("Technicien {} indisponible du {} au {} : {} réaffectées, {} remises en attente",
+            indisponible.getId(), du, au, reaffectees.size(), nonReaffectees.size());
+
+        Map<String, Object> rapport = new HashMap<>();
+        rapport.put("technicienId", indisponible.getId());
+        rapport.put("emailTechnicien", indisponible.getEmail());
+        rapport.put("reaffectees", reaffectees);
+        rapport.put("nonReaffectees", nonReaffectees);
+        return rapport;
     }
     public List<ReservationEntity> getAllReservations() {
         return reservationRepository.findAll();
@@ -472,7 +643,7 @@ public class ReservationService {
             LocalDateTime dateDebut = reservation.getDateReservation();
             reservationMap.put("dateDebut", dateDebut);
             
-            LocalDateTime dateFin = calculateDateFin(dateDebut, reservation.getDuree());
+            LocalDateTime dateFin = DureeUtils.calculerDateFin(dateDebut, reservation.getDuree());
             reservationMap.put("dateFin", dateFin);
             
             result.add(reservationMap);
@@ -480,121 +651,138 @@ public class ReservationService {
         return result;
     }
 
-    private LocalDateTime calculateDateFin(LocalDateTime dateDebut, String duree) {
-       
-        Pattern pattern = Pattern.compile("(\\d+)h(\\d+)min");
-        Matcher matcher = pattern.matcher(duree);
-        
-        if (matcher.find()) {
-            int heures = Integer.parseInt(matcher.group(1));
-            int minutes = Integer.parseInt(matcher.group(2));
-            return dateDebut.plusHours(heures).plusMinutes(minutes);
-        }
-        
-      
-        pattern = Pattern.compile("(\\d+)min");
-        matcher = pattern.matcher(duree);
-        
-        if (matcher.find()) {
-            int minutes = Integer.parseInt(matcher.group(1));
-            return dateDebut.plusMinutes(minutes);
-        }
-        
-        return dateDebut.plusHours(1); // Par défaut 1 heure
+    // Aucune prestation ne dure plus d'une journée : une réservation commencée la veille
+    // de la fenêtre peut encore la chevaucher.
+    private static final long DUREE_MAX_HEURES = 24;
+
+    private List<CreneauReservation> getCreneauxChevauchant(LocalDate du, LocalDate au) {
+        LocalDateTime debutFenetre = du.atStartOfDay();
+        return reservationRepository.findCreneauxEntre(debutFenetre.minusHours(DUREE_MAX_HEURES), au.atStartOfDay())
+            .stream()
+            .filter(creneau -> DureeUtils.calculerDateFin(creneau.getDateReservation(), creneau.getDuree())
+                .isAfter(debutFenetre))
+            .collect(Collectors.toList());
     }
 
-    public List<LocalDateTime> getDatesIndisponibles() {
-        List<ReservationEntity> reservations = reservationRepository.findAll();
-        long totalTechniciens = technicienEmploiRepository.count();
-        
-        Map<LocalDateTime, Long> reservationsCount = new HashMap<>();
-        
-        for (ReservationEntity res : reservations) {
-            LocalDateTime dateDebut = res.getDateReservation();
-            reservationsCount.put(dateDebut, 
-                reservationsCount.getOrDefault(dateDebut, 0L) + 1);
-        }
-        
+    public List<LocalDateTime> getDatesIndisponibles(LocalDate du, LocalDate au) {
+        List<CreneauReservation> reservations = getCreneauxChevauchant(du, au);
+
+        int n = reservations.size();
+        long[] debuts = new long[n];
+        long[] fins = new long[n];
+        for (int k = 0; k < n; k++) {
+            LocalDateTime debut = reservations.get(k).getDateReservation();
+            debuts[k] = SaturationEngine.versMinutes(debut);
+            fins[k] = SaturationEngine.versMinutes(DureeUtils.calculerDateFin(debut, reservations.get(k).getDuree()));
+        }
+
+        // Début de chaque créneau de 30 minutes saturé
         List<LocalDateTime> datesIndisponibles = new ArrayList<>();
-        for (Map.Entry<LocalDateTime, Long> entry : reservationsCount.entrySet()) {
-            if (entry.getValue() >= totalTechniciens) {
-                datesIndisponibles.add(entry.getKey());
+        for (TimeSlot periode : SaturationEngine.creneauxSatures(debuts, fins, n, rosterCapacite::capacite)) {
+            for (LocalDateTime creneau = periode.getStartTime(); creneau.isBefore(periode.getEndTime());
+                    creneau = creneau.plusMinutes(SaturationEngine.MINUTES_PAR_CRENEAU)) {
+                datesIndisponibles.add(creneau);
             }
         }
-        
         return datesIndisponibles;
     }
-    public List<Map<String, LocalDateTime>> getCreneauxIndisponiblesComplets() {
-        List<ReservationEntity> reservations = reservationRepository.findAll();
-        List<TechnicienEmploi> techniciens = technicienEmploiRepository.findAll();
+    // Au-delà, le client repasse par les endpoints de calendrier
+    private static final int HORIZON_CRENEAUX_LIBRES_JOURS = 60;
 
-        // Compter les techniciens disponibles par jour
-        Map<DayOfWeek, Long> techniciensDisponiblesParJour = techniciens.stream()
-            .collect(Collectors.groupingBy(
-                tech -> convertJourReposToDayOfWeek(tech.getJourRepos()),
-                Collectors.counting()
-            ));
+    public List<LocalDateTime> getProchainsCreneauxLibres(Long serviceId, LocalDateTime aPartirDe, int nombre) {
+        ServiceEntity service = serviceRepository.findById(serviceId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Service non trouvé"));
 
-        // Calculer max techniciens disponibles par jour
-        Map<DayOfWeek, Long> maxTechniciensParJour = new HashMap<>();
-        long totalTechniciens = techniciens.size();
-
-        for (DayOfWeek jour : DayOfWeek.values()) {
-            long enRepos = techniciensDisponiblesParJour.getOrDefault(jour, 0L);
-            maxTechniciensParJour.put(jour, totalTechniciens - enRepos);
+        return occupationIndex.getProchainsCreneauxLibres(aPartirDe, DureeUtils.enMinutes(service.getDuree()),
+            nombre, HORIZON_CRENEAUX_LIBRES_JOURS, rosterCapacite::capacite);
+    }
+    /**
+     * Faisabilité d'une liste de couples (service, début) : la prestation doit tenir dans des
+     * créneaux qui ne sont pas pleins. Tous les couples sont évalués en un seul passage sur l'index.
+     */
+    public List<Map<String, Object>> verifierFaisabilite(List<VerificationCreneau> verifications) {
+        Set<Long> serviceIds = verifications.stream()
+            .map(VerificationCreneau::serviceId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<Long, Integer> dureeParService = new HashMap<>();
+        for (ServiceEntity service : serviceRepository.findAllById(serviceIds)) {
+            dureeParService.put(service.getId(), DureeUtils.enMinutes(service.getDuree()));
         }
 
-        // Liste des événements de début et fin des réservations
-        List<Map.Entry<LocalDateTime, Integer>> events = new ArrayList<>();
-
-        for (ReservationEntity reservation : reservations) {
-            LocalDateTime debut = reservation.getDateReservation();
-            LocalDateTime fin = calculateDateFin(debut, reservation.getDuree());
-
-            events.add(new AbstractMap.SimpleEntry<>(debut, +1)); // Début : +1 technicien occupé
-            events.add(new AbstractMap.SimpleEntry<>(fin, -1));   // Fin : -1 technicien occupé
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<Map<String, Object>> resultats = new ArrayList<>();
+        List<Integer> aVerifier = new ArrayList<>();
+        for (VerificationCreneau verification : verifications) {
+            Map<String, Object> resultat = new HashMap<>();
+            resultat.put("serviceId", verification.serviceId());
+            resultat.put("dateTime", verification.dateTime());
+            if (verification.dateTime() == null || !dureeParService.containsKey(verification.serviceId())) {
+                resultat.put("faisable", false);
+                resultat.put("motif", "Service ou date invalide");
+            } else if (verification.dateTime().isBefore(maintenant)) {
+                resultat.put("faisable", false);
+                resultat.put("motif", "Date passée");
+            } else {
+                aVerifier.add(resultats.size());
+            }
+            resultats.add(resultat);
         }
 
-      
-        events.sort(Map.Entry.comparingByKey());
-
-        List<Map<String, LocalDateTime>> creneauxIndisponibles = new ArrayList<>();
-        long techniciensOccupes = 0;
-        LocalDateTime debutIndisponibilite = null;
-
-        for (Map.Entry<LocalDateTime, Integer> event : events) {
-            LocalDateTime currentTime = event.getKey();
-            techniciensOccupes += event.getValue();
-
-            DayOfWeek jour = currentTime.getDayOfWeek();
-            long maxDisponibles = maxTechniciensParJour.getOrDefault(jour, totalTechniciens);
+        long[] debuts = new long[aVerifier.size()];
+        long[] fins = new long[aVerifier.size()];
+        for (int k = 0; k < aVerifier.size(); k++) {
+            VerificationCreneau verification = verifications.get(aVerifier.get(k));
+            LocalDateTime debut = verification.dateTime();
+            debuts[k] = SaturationEngine.versMinutes(debut) / SaturationEngine.MINUTES_PAR_CRENEAU;
+            long fin = SaturationEngine.versMinutes(debut.plusMinutes(dureeParService.get(verification.serviceId())));
+            // Une prestation occupe au moins un créneau, un créneau entamé compte en entier
+            fins[k] = Math.max(Math.floorDiv(fin + SaturationEngine.MINUTES_PAR_CRENEAU - 1, SaturationEngine.MINUTES_PAR_CRENEAU),
+                debuts[k] + 1);
+        }
 
-            if (techniciensOccupes >= maxDisponibles) {
-                // Début de l’indisponibilité
-                if (debutIndisponibilite == null) {
-                    debutIndisponibilite = currentTime;
-                }
+        boolean[] libres = occupationIndex.sontLibres(debuts, fins, rosterCapacite::capacite);
+        for (int k = 0; k < aVerifier.size(); k++) {
+            Map<String, Object> resultat = resultats.get(aVerifier.get(k));
+            resultat.put("faisable", libres[k]);
+            if (!libres[k]) {
+                resultat.put("motif", "Créneau complet");
+            }
+        }
+        return resultats;
+    }
+    public List<Map<String, LocalDateTime>> getCreneauxIndisponiblesComplets(LocalDate du, LocalDate au) {
+        // Une ligne slot_usage par jour, balayée dans l'ordre pour fusionner les périodes sur plusieurs jours
+        // Les retenues en cours comptent comme des réservations ; jours balayés dans l'ordre
+        NavigableMap<LocalDate, int[]> retenues = retenuesCreneaux.entre(du, au);
+        SaturationEngine.Fusion fusion = new SaturationEngine.Fusion();
+        for (SlotUsage ligne : slotUsageService.getOccupation(du, au)) {
+            while (!retenues.isEmpty() && retenues.firstKey().isBefore(ligne.getJour())) {
+                Map.Entry<LocalDate, int[]> jour = retenues.pollFirstEntry();
+                SaturationEngine.balayer(jour.getKey().toEpochDay() * SaturationEngine.CRENEAUX_PAR_JOUR,
+                    jour.getValue(), rosterCapacite::capacite, fusion);
+            }
+            int[] retenuesDuJour = retenues.remove(ligne.getJour());
+            if (retenuesDuJour == null) {
+                SaturationEngine.balayer(ligne.getJour().toEpochDay() * SaturationEngine.CRENEAUX_PAR_JOUR,
+                    ligne.getOccupation(), rosterCapacite::capacite, fusion);
             } else {
-                // Fin de l’indisponibilité
-                if (debutIndisponibilite != null) {
-                    // Vérifier si le créneau précédent finit exactement au moment où celui-ci commence
-                    if (!creneauxIndisponibles.isEmpty() && 
-                        creneauxIndisponibles.get(creneauxIndisponibles.size() - 1).get("fin").equals(debutIndisponibilite)) {
-                        
-                        // Fusionner avec le dernier créneau
-                        creneauxIndisponibles.get(creneauxIndisponibles.size() - 1).put("fin", currentTime);
-                    } else {
-                        // Ajouter un nouveau créneau
-                        Map<String, LocalDateTime> creneau = new HashMap<>();
-                        creneau.put("debut", debutIndisponibilite);
-                        creneau.put("fin", currentTime);
-                        creneauxIndisponibles.add(creneau);
-                    }
-                    debutIndisponibilite = null;
-                }
+                SaturationEngine.balayer(ligne.getJour().toEpochDay() * SaturationEngine.CRENEAUX_PAR_JOUR,
+                    RetenuesCreneaux.additionner(ligne.getOccupation(), retenuesDuJour), rosterCapacite::capacite, fusion);
             }
         }
+        for (Map.Entry<LocalDate, int[]> jour : retenues.entrySet()) {
+            SaturationEngine.balayer(jour.getKey().toEpochDay() * SaturationEngine.CRENEAUX_PAR_JOUR,
+                jour.getValue(), rosterCapacite::capacite, fusion);
+        }
 
+        List<Map<String, LocalDateTime>> creneauxIndisponibles = new ArrayList<>();
+        for (TimeSlot periode : fusion.resultat()) {
+            Map<String, LocalDateTime> creneau = new HashMap<>();
+            creneau.put("debut", periode.getStartTime());
+            creneau.put("fin", periode.getEndTime());
+            creneauxIndisponibles.add(creneau);
+        }
         return creneauxIndisponibles;
     }
 
@@ -0,0 +1,250 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retenues temporaires de capacité pendant le paiement : un client qui a choisi un créneau
+ * le garde quelques minutes, le temps de confirmer. Les retenues sont comptées par jour et
+ * par créneau dans des compteurs atomiques (sans verrou) et s'ajoutent aux réservations
+ * dans les calculs de saturation. Elles expirent d'elles-mêmes si elles ne sont pas
+ * consommées par une réservation.
+ */
+@Slf4j
+@Service
+public class RetenuesCreneaux {
+
+    private static final int CRENEAUX_PAR_JOUR = OccupationIndex.CRENEAUX_PAR_JOUR;
+
+    @Value("${retenues.duree-minutes:5}")
+    private long dureeMinutes;
+
+    // Les retenues modifient la saturation : chaque changement passe par DiffusionDisponibilites.modifier.
+    // Injections différées : l'index et la diffusion lisent eux-mêmes les retenues.
+    @Autowired
+    @Lazy
+    private DiffusionDisponibilites diffusionDisponibilites;
+
+    @Autowired
+    @Lazy
+    private OccupationIndex occupationIndex;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    public record Retenue(String id, String userEmail, long premierCreneau, long dernierCreneau,
+                          LocalDateTime expiration) {
+    }
+
+    private final ConcurrentHashMap<String, Retenue> retenues = new ConcurrentHashMap<>();
+
+    // Nombre de retenues actives par créneau, rangé par jour
+    private final ConcurrentHashMap<LocalDate, AtomicIntegerArray> parJour = new ConcurrentHashMap<>();
+
+    /**
+     * Retient les créneaux [premier, dernier[ si, retenue comprise, aucun ne dépasse sa
+     * capacité. La retenue est posée puis vérifiée : deux clients qui visent la dernière
+     * place en même temps ne peuvent pas l'obtenir tous les deux.
+     *
+     * @return la retenue, ou {@code null} si un créneau est complet
+     */
+    public Retenue retenir(String userEmail, long premier, long dernier, SaturationEngine.Capacite capacite) {
+        Retenue retenue = new Retenue(UUID.randomUUID().toString(), userEmail, premier, dernier,
+            LocalDateTime.now().plusMinutes(dureeMinutes));
+
+        if (!diffusionDisponibilites.modifier(SaturationEngine.debutCreneau(premier), SaturationEngine.debutCreneau(dernier),
+                () -> poser(premier, dernier, capacite))) {
+            return null;
+        }
+        retenues.put(retenue.id(), retenue);
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+        return retenue;
+    }
+
+    /**
+     * Contrôle d'admission d'une réservation : prend la capacité de [premier, dernier[
+     * jusqu'à la fin de la transaction en cours. La réservation n'entre dans
+     * {@link OccupationIndex} qu'après commit, juste avant que cette capacité soit rendue :
+     * elle n'est jamais comptée deux fois. Coût proportionnel au nombre de créneaux de la prestation,
+     * sans lecture des réservations.
+     *
+     * @return {@code false} si un créneau est complet (ou sans technicien ce jour-là)
+     */
+    public boolean admettre(long premier, long dernier, SaturationEngine.Capacite capacite) {
+        if (!poser(premier, dernier, capacite)) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                appliquer(premier, dernier, -1);
+            }
+        });
+        return true;
+    }
+
+    /** @return la retenue active de ce client, ou {@code null} si elle est inconnue, expirée ou à un autre client */
+    public Retenue trouver(String id, String userEmail) {
+        Retenue retenue = id != null ? retenues.get(id) : null;
+        if (retenue == null || !retenue.userEmail().equals(userEmail) || retenue.expiration().isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        return retenue;
+    }
+
+    /**
+     * Réclame la retenue du client pour une réservation de [premier, dernier[ : elle est
+     * retirée de la table de façon atomique et ne peut donc servir qu'à une seule
+     * réservation. Sa capacité reste comptée jusqu'à {@link #rendre} ; si la transaction
+     * échoue, la retenue est remise en place.
+     *
+     * @return la retenue, ou {@code null} si elle est inconnue, expirée, à un autre client,
+     *         pour d'autres créneaux ou déjà réclamée
+     */
+    public Retenue consommer(String id, String userEmail, long premier, long dernier) {
+        Retenue retenue = trouver(id, userEmail);
+        if (retenue == null || retenue.premierCreneau() != premier || retenue.dernierCreneau() != dernier
+                || !retenues.remove(retenue.id(), retenue)) {
+            return null;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    retenues.put(retenue.id(), retenue);
+                }
+            }
+        });
+        return retenue;
+    }
+
+    /** Rend la capacité d'une retenue consommée, une fois la réservation entrée dans l'index. */
+    public void rendre(Retenue retenue) {
+        diffusionDisponibilites.modifier(SaturationEngine.debutCreneau(retenue.premierCreneau()),
+            SaturationEngine.debutCreneau(retenue.dernierCreneau()), () -> {
+                appliquer(retenue.premierCreneau(), retenue.dernierCreneau(), -1);
+                return true;
+            });
+    }
+
+    public boolean liberer(String id) {
+        Retenue retenue = retenues.remove(id);
+        if (retenue == null) {
+            return false;
+        }
+        rendre(retenue);
+        versionsDonnees.incrementer(VersionsDonnees.Agregat.RESERVATIONS);
+        return true;
+    }
+
+    @Scheduled(fixedDelay = 5_000)
+    public void expirer() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        int expirees = 0;
+        for (Retenue retenue : retenues.values()) {
+            if (retenue.expiration().isBefore(maintenant) && liberer(retenue.id())) {
+                expirees++;
+            }
+        }
+        if (expirees > 0) {
+            log.debug("{} retenues de créneaux expirées", expirees);
+        }
+    }
+
+    /** Retenues actives du jour, {@code null} s'il n'y en a aucune. */
+    public int[] duJour(LocalDate jour) {
+        AtomicIntegerArray compteurs = parJour.get(jour);
+        if (compteurs == null) {
+            return null;
+        }
+        int[] copie = new int[CRENEAUX_PAR_JOUR];
+        boolean vide = true;
+        for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+            copie[i] = compteurs.get(i);
+            vide &= copie[i] == 0;
+        }
+        return vide ? null : copie;
+    }
+
+    /** Retenues actives des jours de [du, au[ (bornes facultatives), par jour croissant. */
+    public NavigableMap<LocalDate, int[]> entre(LocalDate du, LocalDate au) {
+        NavigableMap<LocalDate, int[]> resultat = new TreeMap<>();
+        for (LocalDate jour : parJour.keySet()) {
+            if ((du == null || !jour.isBefore(du)) && (au == null || jour.isBefore(au))) {
+                int[] retenuesDuJour = duJour(jour);
+                if (retenuesDuJour != null) {
+                    resultat.put(jour, retenuesDuJour);
+                }
+            }
+        }
+        return resultat;
+    }
+
+    public boolean estVide() {
+        return retenues.isEmpty();
+    }
+
+    /** Somme créneau par créneau ; {@code occupation} peut être nulle (aucune réservation ce jour-là). */
+    public static int[] additionner(int[] occupation, int[] retenuesDuJour) {
+        int[] total = retenuesDuJour.clone();
+        if (occupation != null) {
+            for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+                total[i] += occupation[i];
+            }
+        }
+        return total;
+    }
+
+    public static int[] additionner(byte[] occupation, int[] retenuesDuJour) {
+        int[] total = retenuesDuJour.clone();
+        for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+            total[i] += occupation[i] & 0xFF;
+        }
+        return total;
+    }
+
+    // Pose puis vérifie : retirée aussitôt si un créneau dépasse sa capacité
+    private boolean poser(long premier, long dernier, SaturationEngine.Capacite capacite) {
+        appliquer(premier, dernier, 1);
+        if (occupationIndex.depasseCapacite(premier, dernier, capacite)) {
+            appliquer(premier, dernier, -1);
+            return false;
+        }
+        return true;
+    }
+
+    private void appliquer(long premier, long dernier, int delta) {
+        for (long creneau = premier; creneau < dernier; creneau++) {
+            LocalDate jour = LocalDate.ofEpochDay(Math.floorDiv(creneau, CRENEAUX_PAR_JOUR));
+            parJour.computeIfAbsent(jour, j -> new AtomicIntegerArray(CRENEAUX_PAR_JOUR))
+                .addAndGet((int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR), delta);
+        }
+    }
+
+    // Jours passés sans retenue : leurs compteurs ne servent plus
+    @Scheduled(cron = "0 0 3 * * *")
+    public void nettoyer() {
+        LocalDate aujourdhui = LocalDate.now();
+        for (Map.Entry<LocalDate, AtomicIntegerArray> entry : parJour.entrySet()) {
+            if (entry.getKey().isBefore(aujourdhui) && duJour(entry.getKey()) == null) {
+                parJour.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
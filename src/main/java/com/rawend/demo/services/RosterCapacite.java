@@ -0,0 +1,86 @@
+package com.rawend.demo.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rawend.demo.Repository.TechnicienEmploiRepository;
+import com.rawend.demo.entity.JourRepos;
+import com.rawend.demo.entity.TechnicienEmploi;
+
+/**
+ * Planning compilé des techniciens : nombre de techniciens en service pour chaque jour de
+ * la semaine et chaque créneau de 30 minutes. Reconstruit uniquement quand un emploi du
+ * temps change, il remplace le parcours de tous les {@link TechnicienEmploi} par créneau.
+ */
+@Service
+public class RosterCapacite {
+
+    private static final int CRENEAUX_PAR_JOUR = OccupationIndex.CRENEAUX_PAR_JOUR;
+    private static final int MINUTES_PAR_CRENEAU = OccupationIndex.MINUTES_PAR_CRENEAU;
+
+    @Autowired
+    private TechnicienEmploiRepository technicienEmploiRepository;
+
+    // capacites[jour de la semaine - 1][créneau], remplacé d'un bloc à chaque reconstruction
+    private volatile short[][] capacites;
+
+    public int capacite(LocalDateTime creneau) {
+        int minutes = creneau.getHour() * 60 + creneau.getMinute();
+        return capacite(creneau.getDayOfWeek(), minutes / MINUTES_PAR_CRENEAU);
+    }
+
+    // Créneau numéroté depuis l'epoch (voir SaturationEngine) : le 01/01/1970 était un jeudi
+    public int capacite(long creneau) {
+        int jour = (int) Math.floorMod(Math.floorDiv(creneau, CRENEAUX_PAR_JOUR) + 3, 7);
+        return capacite(DayOfWeek.of(jour + 1), (int) Math.floorMod(creneau, CRENEAUX_PAR_JOUR));
+    }
+
+    public int capacite(DayOfWeek jour, int creneau) {
+        short[][] courantes = capacites;
+        if (courantes == null) {
+            courantes = reconstruire();
+        }
+        return courantes[jour.getValue() - 1][creneau];
+    }
+
+    public synchronized short[][] reconstruire() {
+        List<TechnicienEmploi> techniciens = technicienEmploiRepository.findAll();
+        short[][] nouvelles = new short[7][CRENEAUX_PAR_JOUR];
+
+        for (TechnicienEmploi tech : techniciens) {
+            for (DayOfWeek jour : DayOfWeek.values()) {
+                // Vérifier jour de repos
+                if (tech.getJourRepos() != null && tech.getJourRepos() == versJourRepos(jour)) {
+                    continue;
+                }
+
+                for (int i = 0; i < CRENEAUX_PAR_JOUR; i++) {
+                    // Le créneau doit tenir entièrement dans la plage horaire (même règle que
+                    // PlanningTechniciens.couvre) : celui qui commence à heureFin n'en fait pas partie.
+                    // En minutes, pour que le créneau de 23:30 ne finisse pas à 00:00 du même jour.
+                    if (tech.getHeureDebut() != null && tech.getHeureFin() != null) {
+                        int minute = i * MINUTES_PAR_CRENEAU;
+                        int debutTravail = tech.getHeureDebut().toSecondOfDay() / 60;
+                        int finTravail = tech.getHeureFin().toSecondOfDay() / 60;
+                        if (minute < debutTravail || minute + MINUTES_PAR_CRENEAU > finTravail) {
+                            continue;
+                        }
+                    }
+                    nouvelles[jour.getValue() - 1][i]++;
+                }
+            }
+        }
+
+        capacites = nouvelles;
+        return nouvelles;
+    }
+
+    private static JourRepos versJourRepos(DayOfWeek jour) {
+        // JourRepos suit le même ordre que DayOfWeek (LUNDI .. DIMANCHE)
+        return JourRepos.values()[jour.getValue() - 1];
+    }
+}
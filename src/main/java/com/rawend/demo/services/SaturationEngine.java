@@ -0,0 +1,137 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.rawend.demo.entity.TimeSlot;
+
+/**
+ * Calcul unique de la saturation utilisé par tous les endpoints de disponibilité.
+ *
+ * Le temps est découpé en créneaux de 30 minutes numérotés depuis l'epoch (heure locale).
+ * Un créneau est saturé quand il contient au moins une réservation et que le nombre de
+ * réservations atteint le nombre de techniciens en service (jour de repos et horaires
+ * compris, voir {@link RosterCapacite}). Les créneaux saturés consécutifs sont fusionnés.
+ */
+public final class SaturationEngine {
+
+    public static final int MINUTES_PAR_CRENEAU = OccupationIndex.MINUTES_PAR_CRENEAU;
+    public static final int CRENEAUX_PAR_JOUR = OccupationIndex.CRENEAUX_PAR_JOUR;
+
+    @FunctionalInterface
+    public interface Capacite {
+        int capacite(long creneau);
+    }
+
+    private SaturationEngine() {
+    }
+
+    /**
+     * Balayage sur des intervalles [debuts[k], fins[k][ exprimés en minutes depuis l'epoch.
+     * Les deux tableaux sont arrondis aux créneaux puis triés sur place : ils ne sont plus
+     * utilisables par l'appelant ensuite.
+     */
+    public static List<TimeSlot> creneauxSatures(long[] debuts, long[] fins, int n, Capacite capacite) {
+        for (int k = 0; k < n; k++) {
+            long debut = Math.floorDiv(debuts[k], MINUTES_PAR_CRENEAU);
+            // Un créneau entamé compte comme occupé ; un intervalle vide ne compte pas
+            long fin = Math.max(Math.floorDiv(fins[k] + MINUTES_PAR_CRENEAU - 1, MINUTES_PAR_CRENEAU), debut);
+            debuts[k] = debut;
+            fins[k] = fin;
+        }
+        Arrays.sort(debuts, 0, n);
+        Arrays.sort(fins, 0, n);
+
+        Fusion fusion = new Fusion();
+        int i = 0;
+        int j = 0;
+        int occupation = 0;
+
+        while (i < n || j < n) {
+            long t = i < n ? Math.min(debuts[i], fins[j]) : fins[j];
+            while (i < n && debuts[i] == t) {
+                occupation++;
+                i++;
+            }
+            while (j < n && fins[j] == t) {
+                occupation--;
+                j++;
+            }
+            if (occupation == 0) {
+                continue;
+            }
+
+            // L'occupation est constante jusqu'au prochain événement (il reste au moins une fin)
+            long suivant = i < n ? Math.min(debuts[i], fins[j]) : fins[j];
+            for (long creneau = t; creneau < suivant; creneau++) {
+                if (occupation >= capacite.capacite(creneau)) {
+                    fusion.saturer(creneau);
+                }
+            }
+        }
+        return fusion.resultat();
+    }
+
+    /**
+     * Même règle appliquée à des compteurs déjà agrégés par créneau, à partir de
+     * {@code premierCreneau}. Plusieurs appels successifs sur la même {@link Fusion}
+     * (un par jour, dans l'ordre) fusionnent les périodes à cheval sur minuit.
+     */
+    public static void balayer(long premierCreneau, int[] occupation, Capacite capacite, Fusion fusion) {
+        for (int i = 0; i < occupation.length; i++) {
+            if (occupation[i] > 0 && occupation[i] >= capacite.capacite(premierCreneau + i)) {
+                fusion.saturer(premierCreneau + i);
+            }
+        }
+    }
+
+    public static void balayer(long premierCreneau, byte[] occupation, Capacite capacite, Fusion fusion) {
+        for (int i = 0; i < occupation.length; i++) {
+            int nombre = occupation[i] & 0xFF;
+            if (nombre > 0 && nombre >= capacite.capacite(premierCreneau + i)) {
+                fusion.saturer(premierCreneau + i);
+            }
+        }
+    }
+
+    public static long versMinutes(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    public static LocalDateTime debutCreneau(long creneau) {
+        return LocalDateTime.ofEpochSecond(creneau * MINUTES_PAR_CRENEAU * 60, 0, ZoneOffset.UTC);
+    }
+
+    /** Accumule des créneaux saturés, fournis dans l'ordre croissant, en périodes continues. */
+    public static final class Fusion {
+        private final List<TimeSlot> creneaux = new ArrayList<>();
+        private long debut = Long.MIN_VALUE;
+        private long fin = Long.MIN_VALUE;
+
+        public void saturer(long creneau) {
+            if (creneau == fin) {
+                fin++;
+                return;
+            }
+            emettre();
+            debut = creneau;
+            fin = creneau + 1;
+        }
+
+        public List<TimeSlot> resultat() {
+            emettre();
+            return creneaux;
+        }
+
+        private void emettre() {
+            if (fin != Long.MIN_VALUE) {
+                creneaux.add(new TimeSlot(debutCreneau(debut), debutCreneau(fin)));
+                debut = Long.MIN_VALUE;
+                fin = Long.MIN_VALUE;
+            }
+        }
+    }
+}
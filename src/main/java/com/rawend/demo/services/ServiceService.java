@@ -26,6 +26,9 @@ public class ServiceService {
 
     @Autowired
     private PromotionRepository  promotionRepository;
+
+    @Autowired
+    private TarifsServices tarifsServices;
   
     public long countServices() {
         return serviceRepository.count();
@@ -49,9 +52,10 @@ public class ServiceService {
 
         for (ServiceEntity service : services) {
             PromotionEntity promo = service.getPromotion();
-            if (promo != null && promo.getActif()) {
-                double originalPrice = service.getPrix();
-                double discountedPrice = calculerPrixAvecReduction(service, promo);
+            TarifsServices.Tarif tarif = tarifsServices.tarif(service.getId());
+            if (promo != null && tarif != null && tarif.remise() != null) {
+                double originalPrice = tarif.prixInitial();
+                double discountedPrice = tarif.prixRemise();
 
                 Map<String, Object> serviceMap = new HashMap<>();
                 serviceMap.put("serviceId", service.getId());
@@ -102,25 +106,6 @@ public class ServiceService {
         return serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new RuntimeException("Service non trouvé avec l'ID: " + serviceId));
     }
- // Méthode pour calculer le prix avec réduction
-    private double calculerPrixAvecReduction(ServiceEntity service, PromotionEntity promo) {
-        double prixInitial = service.getPrix();
-
-        // Vérification si la promotion est un pourcentage
-        if ("POURCENTAGE".equals(promo.getTypeReduction())) {
-            // Calcul du prix après réduction pourcentage
-            return prixInitial - (prixInitial * promo.getValeurReduction() / 100);
-        }
-
-        // Vérification si la promotion est un montant fixe
-        if ("MONTANT".equals(promo.getTypeReduction())) {
-            // Calcul du prix après réduction montant fixe
-            return prixInitial - promo.getValeurReduction();
-        }
-
-        // Si le type de réduction ne correspond pas, retourner le prix initial
-        return prixInitial;
-    }
  // Convertir java.util.Date en java.time.LocalDate
     private LocalDate convertToLocalDate(Date date) {
         if (date == null) {
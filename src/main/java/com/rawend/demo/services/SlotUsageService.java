@@ -0,0 +1,132 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rawend.demo.Repository.ReservationRepository;
+import com.rawend.demo.Repository.SlotUsageRepository;
+import com.rawend.demo.dto.CreneauReservation;
+import com.rawend.demo.entity.SlotUsage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tient à jour la table {@code slot_usage} : l'occupation par créneau de chaque journée,
+ * recalculée dans la transaction des écritures de réservation et d'affectation, et
+ * reconstruite entièrement chaque nuit.
+ */
+@Slf4j
+@Service
+public class SlotUsageService {
+
+    private static final int CRENEAUX_PAR_JOUR = OccupationIndex.CRENEAUX_PAR_JOUR;
+
+    // Une prestation ne dure jamais plus d'une journée
+    private static final long DUREE_MAX_HEURES = 24;
+
+    @Autowired
+    private SlotUsageRepository slotUsageRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    @Lazy
+    private SlotUsageService moiMeme;
+
+    /**
+     * Recalcule les lignes des jours couverts par [debut, fin[. Doit être appelé dans la
+     * transaction qui écrit la réservation ou l'affectation. La ligne de chaque jour est
+     * créée ou verrouillée avant la relecture des réservations : deux écritures du même jour
+     * passent l'une après l'autre, et la seconde relit ce que la première a validé.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void rafraichir(LocalDateTime debut, LocalDateTime fin) {
+        LocalDate dernierJour = fin != null && fin.isAfter(debut) ? fin.minusNanos(1).toLocalDate() : debut.toLocalDate();
+
+        // Jours pris dans l'ordre croissant : pas d'interblocage entre deux écritures sur plusieurs jours
+        for (LocalDate jour = debut.toLocalDate(); !jour.isAfter(dernierJour); jour = jour.plusDays(1)) {
+            slotUsageRepository.verrouillerJour(jour, new byte[CRENEAUX_PAR_JOUR]);
+            List<CreneauReservation> reservations = reservationRepository.findCreneauxEntre(
+                jour.atStartOfDay().minusHours(DUREE_MAX_HEURES), jour.plusDays(1).atStartOfDay());
+            slotUsageRepository.mettreAJour(jour, calculerOccupation(jour, reservations));
+        }
+    }
+
+    public List<SlotUsage> getOccupation(LocalDate du, LocalDate au) {
+        return slotUsageRepository.findByJourGreaterThanEqualAndJourLessThanOrderByJour(du, au);
+    }
+
+    // Appel interne : passe par le proxy pour que recalculerTout soit transactionnel
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        if (slotUsageRepository.count() == 0) {
+            moiMeme.recalculerTout();
+        }
+    }
+
+    /**
+     * Reconstruction complète : les réservations sont lues une fois, réparties par jour,
+     * puis chaque journée est recalculée en parallèle sur le pool fork-join commun.
+     */
+    @Scheduled(cron = "0 30 2 * * *")
+    @Transactional
+    public void recalculerTout() {
+        Map<LocalDate, List<CreneauReservation>> reservationsParJour = new HashMap<>();
+        for (CreneauReservation reservation : reservationRepository.findAllCreneaux()) {
+            LocalDateTime debut = reservation.getDateReservation();
+            LocalDateTime fin = DureeUtils.calculerDateFin(debut, reservation.getDuree());
+            if (debut == null || !fin.isAfter(debut)) {
+                continue;
+            }
+            for (LocalDate jour = debut.toLocalDate(); jour.isBefore(fin.toLocalDate().plusDays(1)); jour = jour.plusDays(1)) {
+                reservationsParJour.computeIfAbsent(jour, j -> new ArrayList<>()).add(reservation);
+            }
+        }
+
+        List<SlotUsage> lignes = reservationsParJour.entrySet().parallelStream()
+            .map(entry -> new SlotUsage(entry.getKey(), calculerOccupation(entry.getKey(), entry.getValue())))
+            .collect(Collectors.toList());
+
+        slotUsageRepository.deleteAllInBatch();
+        slotUsageRepository.saveAll(lignes);
+        log.info("slot_usage recalculée : {} jours", lignes.size());
+    }
+
+    static byte[] calculerOccupation(LocalDate jour, List<CreneauReservation> reservations) {
+        byte[] occupation = new byte[CRENEAUX_PAR_JOUR];
+        long premierDuJour = OccupationIndex.creneauDebut(jour.atStartOfDay());
+
+        for (CreneauReservation reservation : reservations) {
+            LocalDateTime debut = reservation.getDateReservation();
+            LocalDateTime fin = DureeUtils.calculerDateFin(debut, reservation.getDuree());
+            if (debut == null || !fin.isAfter(debut)) {
+                continue;
+            }
+
+            long premier = Math.max(OccupationIndex.creneauDebut(debut) - premierDuJour, 0);
+            long dernier = Math.min(OccupationIndex.creneauFin(fin) - premierDuJour, CRENEAUX_PAR_JOUR);
+            for (long i = premier; i < dernier; i++) {
+                // Compteur sur un octet, plafonné à 255 réservations simultanées
+                if ((occupation[(int) i] & 0xFF) < 0xFF) {
+                    occupation[(int) i]++;
+                }
+            }
+        }
+        return occupation;
+    }
+}
@@ -0,0 +1,144 @@
+package com.rawend.demo.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.rawend.demo.Repository.ServiceRepository;
+import com.rawend.demo.dto.TarifService;
+import com.rawend.demo.entity.TypeReduction;
+
+/**
+ * Seul calcul des prix effectifs : une grille immuable serviceId → prix du jour, construite
+ * en une requête puis remplacée d'un bloc. Elle est reconstruite à minuit et dès qu'un
+ * service ou une promotion change (versions de {@link VersionsDonnees}), si bien que les
+ * lectures ne font ni requête ni conversion de {@code java.util.Date}.
+ */
+@Service
+public class TarifsServices {
+
+    /** Promotion du service, active aujourd'hui. */
+    public record Remise(Long promotionId, String codePromo, TypeReduction typeReduction, double valeur) {
+
+        public boolean avecCode() {
+            return codePromo != null && !codePromo.isEmpty();
+        }
+
+        // Même présentation que la liste des services : "- 10% " ou "- 5DT"
+        public String libelle() {
+            String montant = valeur % 1 == 0 ? String.format("%.0f", valeur) : String.valueOf(valeur);
+            return typeReduction == TypeReduction.POURCENTAGE ? "- " + montant + "% " : "- " + montant + "DT";
+        }
+    }
+
+    /** @param remise {@code null} si le service n'a pas de promotion active aujourd'hui */
+    public record Tarif(Long serviceId, double prixInitial, double prixRemise, Remise remise) {
+    }
+
+    private record Grille(LocalDate jour, long versionCatalogue, long versionPromotions, Map<Long, Tarif> tarifs) {
+    }
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private VersionsDonnees versionsDonnees;
+
+    private volatile Grille grille;
+
+    /** @return le tarif du jour, ou {@code null} si le service n'existe pas */
+    public Tarif tarif(Long serviceId) {
+        return grilleAJour().tarifs().get(serviceId);
+    }
+
+    /**
+     * Prix à payer aujourd'hui : la promotion du service s'applique si elle est sans code, ou
+     * si {@code codePromo} est le sien. Sinon, prix du service.
+     *
+     * @return {@code null} si le service n'existe pas
+     */
+    public Double prix(Long serviceId, String codePromo) {
+        Tarif tarif = tarif(serviceId);
+        if (tarif == null) {
+            return null;
+        }
+        Remise remise = tarif.remise();
+        if (remise != null && (!remise.avecCode() || remise.codePromo().equals(codePromo))) {
+            return tarif.prixRemise();
+        }
+        return tarif.prixInitial();
+    }
+
+    public Map<Long, Tarif> tous() {
+        return grilleAJour().tarifs();
+    }
+
+    /** Formule de réduction, montant fixe plafonné à la gratuité, arrondie au millime. */
+    public static double appliquer(double prix, TypeReduction typeReduction, double valeur) {
+        double reduit;
+        if (typeReduction == TypeReduction.POURCENTAGE) {
+            reduit = prix * (1 - valeur / 100);
+        } else if (typeReduction == TypeReduction.MONTANT_FIXE) {
+            reduit = Math.max(prix - valeur, 0);
+        } else {
+            reduit = prix;
+        }
+        return arrondir(reduit);
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void reconstruireAMinuit() {
+        reconstruire();
+    }
+
+    private Grille grilleAJour() {
+        Grille courante = grille;
+        if (courante == null || !courante.jour().equals(LocalDate.now())
+                || courante.versionCatalogue() != versionsDonnees.version(VersionsDonnees.Agregat.CATALOGUE)
+                || courante.versionPromotions() != versionsDonnees.version(VersionsDonnees.Agregat.PROMOTIONS)) {
+            courante = reconstruire();
+        }
+        return courante;
+    }
+
+    private synchronized Grille reconstruire() {
+        // Versions lues avant la requête : une modification pendant la lecture forcera une nouvelle grille
+        LocalDate aujourdhui = LocalDate.now();
+        long versionCatalogue = versionsDonnees.version(VersionsDonnees.Agregat.CATALOGUE);
+        long versionPromotions = versionsDonnees.version(VersionsDonnees.Agregat.PROMOTIONS);
+        Grille courante = grille;
+        if (courante != null && courante.jour().equals(aujourdhui)
+                && courante.versionCatalogue() == versionCatalogue && courante.versionPromotions() == versionPromotions) {
+            return courante;
+        }
+
+        Map<Long, Tarif> tarifs = new HashMap<>();
+        for (TarifService ligne : serviceRepository.findAllTarifs()) {
+            double prix = ligne.getPrix() != null ? ligne.getPrix() : 0;
+            Remise remise = estActive(ligne, aujourdhui)
+                ? new Remise(ligne.getPromotionId(), ligne.getCodePromo(), ligne.getTypeReduction(), ligne.getValeurReduction())
+                : null;
+            double prixRemise = remise != null ? appliquer(prix, remise.typeReduction(), remise.valeur()) : arrondir(prix);
+            tarifs.put(ligne.getServiceId(), new Tarif(ligne.getServiceId(), prix, prixRemise, remise));
+        }
+
+        courante = new Grille(aujourdhui, versionCatalogue, versionPromotions, Map.copyOf(tarifs));
+        grille = courante;
+        return courante;
+    }
+
+    private static boolean estActive(TarifService ligne, LocalDate jour) {
+        return ligne.getPromotionId() != null && ligne.getValeurReduction() != null && ligne.getTypeReduction() != null
+            && IndexPromotions.estActive(ligne.getActif(), ligne.getDateDebut(), ligne.getDateFin(), jour);
+    }
+
+    private static double arrondir(double prix) {
+        return BigDecimal.valueOf(prix).setScale(3, RoundingMode.HALF_UP).doubleValue();
+    }
+}
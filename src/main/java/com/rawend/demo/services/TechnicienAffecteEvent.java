@@ -0,0 +1,16 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publié dans la transaction qui affecte un technicien à une réservation ; les
+ * notifications ne partent qu'une fois cette transaction validée.
+ */
+public record TechnicienAffecteEvent(
+    Long reservationId,
+    String emailTechnicien,
+    String ancienEmailTechnicien,   // null s'il n'y avait pas de technicien ou s'il est inchangé
+    LocalDateTime dateDebut,
+    LocalDateTime dateFin,
+    boolean remplacement
+) {}
@@ -0,0 +1,14 @@
+package com.rawend.demo.services;
+
+import java.time.LocalDate;
+
+/**
+ * Publié dans la transaction qui retire ses réservations à un technicien indisponible ; le
+ * récapitulatif ne lui est envoyé qu'une fois cette transaction validée.
+ */
+public record TechnicienRetireEvent(
+    String emailTechnicien,
+    int nombreReservations,
+    LocalDate du,
+    LocalDate au
+) {}
@@ -0,0 +1,71 @@
+package com.rawend.demo.services;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Verrous par technicien autour du contrôle de chevauchement et de l'écriture d'une
+ * affectation. Un verrou local (réparti sur un nombre fixe de bandes) évite de mobiliser
+ * une connexion pour attendre, et un verrou consultatif Postgres couvre plusieurs instances.
+ * Les deux sont tenus jusqu'à la fin de la transaction : deux affectations du même
+ * technicien sont sérialisées, celles de techniciens différents restent parallèles.
+ */
+@Service
+public class VerrousTechniciens {
+
+    private static final int NOMBRE_BANDES = 64;
+
+    // Premier argument de pg_advisory_xact_lock, réservé aux affectations de techniciens
+    private static final int ESPACE_AFFECTATIONS = 0x41464654;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReentrantLock[] bandes = new ReentrantLock[NOMBRE_BANDES];
+
+    public VerrousTechniciens() {
+        for (int i = 0; i < NOMBRE_BANDES; i++) {
+            bandes[i] = new ReentrantLock();
+        }
+    }
+
+    /** Verrouille le technicien jusqu'au commit ou à l'annulation de la transaction en cours. */
+    public void verrouiller(Long technicienId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Le verrou d'un technicien doit être pris dans une transaction");
+        }
+
+        ReentrantLock bande = bandes[Math.floorMod(Long.hashCode(technicienId), NOMBRE_BANDES)];
+        bande.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                bande.unlock();
+            }
+        });
+
+        // Libéré automatiquement par Postgres à la fin de la transaction
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", rs -> { },
+            ESPACE_AFFECTATIONS, (int) (technicienId ^ (technicienId >>> 32)));
+    }
+
+    /** Verrouille plusieurs techniciens, toujours dans le même ordre pour éviter les interblocages. */
+    public void verrouillerTous(Collection<Long> technicienIds) {
+        TreeSet<Long> parBande = new TreeSet<>((a, b) -> {
+            int comparaison = Integer.compare(Math.floorMod(Long.hashCode(a), NOMBRE_BANDES),
+                Math.floorMod(Long.hashCode(b), NOMBRE_BANDES));
+            return comparaison != 0 ? comparaison : Long.compare(a, b);
+        });
+        parBande.addAll(technicienIds);
+        for (Long technicienId : parBande) {
+            verrouiller(technicienId);
+        }
+    }
+}
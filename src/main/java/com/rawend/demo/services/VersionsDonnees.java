@@ -0,0 +1,69 @@
+package com.rawend.demo.services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Compteurs de version croissants par agrégat, utilisés comme ETag par les endpoints
+ * consultés en boucle : tant qu'aucune écriture n'a eu lieu, le client reçoit un 304
+ * sans que la réponse soit recalculée.
+ */
+@Service
+public class VersionsDonnees {
+
+    public enum Agregat {
+        RESERVATIONS, ROSTER, CATALOGUE, PROMOTIONS
+    }
+
+    // Distingue les compteurs d'un redémarrage à l'autre
+    private final long demarrage = System.currentTimeMillis();
+
+    private final Map<Agregat, AtomicLong> versions = new EnumMap<>(Agregat.class);
+
+    public VersionsDonnees() {
+        for (Agregat agregat : Agregat.values()) {
+            versions.put(agregat, new AtomicLong());
+        }
+    }
+
+    /**
+     * Incrémente la version après le commit de la transaction en cours (ou tout de suite s'il
+     * n'y en a pas), pour qu'un ETag ne désigne jamais des données pas encore visibles.
+     */
+    public void incrementer(Agregat agregat) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.get(agregat).incrementAndGet();
+                }
+            });
+        } else {
+            versions.get(agregat).incrementAndGet();
+        }
+    }
+
+    public long version(Agregat agregat) {
+        return versions.get(agregat).get();
+    }
+
+    public String etag(Object contexte, Agregat... agregats) {
+        StringBuilder etag = new StringBuilder("\"").append(demarrage);
+        for (Agregat agregat : agregats) {
+            etag.append('-').append(versions.get(agregat).get());
+        }
+        if (contexte != null) {
+            etag.append('-').append(contexte);
+        }
+        return etag.append('"').toString();
+    }
+
+    public boolean nonModifie(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && (ifNoneMatch.equals(etag) || ifNoneMatch.equals("W/" + etag));
+    }
+}
@@ -0,0 +1,48 @@
+-- Index des chemins d'accès utilisés par les repositories.
+-- Les tables sont encore créées par Hibernate (ddl-auto) ; ces index sont gérés ici uniquement.
+
+-- ReservationRepository
+CREATE INDEX IF NOT EXISTS idx_reservation_date_reservation
+    ON reservation (date_reservation);
+CREATE INDEX IF NOT EXISTS idx_reservation_technicien
+    ON reservation (technicien_id)
+    WHERE technicien_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_reservation_user_date_creation
+    ON reservation (user_id, date_creation DESC);
+-- Réservations EN_ATTENTE d'une journée (affectation par lot)
+CREATE INDEX IF NOT EXISTS idx_reservation_en_attente_date
+    ON reservation (date_reservation)
+    WHERE status = 'EN_ATTENTE';
+
+-- AffectationTechnicienRepository : contrôle de chevauchement par technicien
+CREATE INDEX IF NOT EXISTS idx_affectation_technicien_periode
+    ON affectations_techniciens (technicien_id, date_debut, date_fin);
+CREATE INDEX IF NOT EXISTS idx_affectation_reservation
+    ON affectations_techniciens (reservation_id);
+CREATE INDEX IF NOT EXISTS idx_affectation_date_debut
+    ON affectations_techniciens (date_debut);
+
+-- TechnicienEmploiRepository
+CREATE INDEX IF NOT EXISTS idx_technicien_emplois_email
+    ON technicien_emplois (email);
+
+-- NotificationRepository
+CREATE INDEX IF NOT EXISTS idx_notifications_user_date_envoi
+    ON notifications (user_email, date_envoi DESC);
+CREATE INDEX IF NOT EXISTS idx_notifications_non_lues
+    ON notifications (user_email)
+    WHERE is_read = false;
+
+-- PromotionRepository
+CREATE INDEX IF NOT EXISTS idx_promotion_code_promo
+    ON promotion (code_promo);
+CREATE INDEX IF NOT EXISTS idx_promotion_service_service
+    ON promotion_service (service_id, promotion_id);
+
+-- ServiceRepository
+CREATE INDEX IF NOT EXISTS idx_service_promotion
+    ON service (promotion_id);
+
+-- AvisRepository
+CREATE INDEX IF NOT EXISTS idx_avis_service
+    ON avis (service_id);
@@ -0,0 +1,7 @@
+-- Coordonnées numériques des réservations existantes, lues dans localisation ("latitude,longitude").
+-- Les colonnes sont créées par Hibernate ; les nouvelles réservations sont renseignées à la création.
+UPDATE reservation
+SET latitude  = CAST(split_part(regexp_replace(localisation, '\s', '', 'g'), ',', 1) AS double precision),
+    longitude = CAST(split_part(regexp_replace(localisation, '\s', '', 'g'), ',', 2) AS double precision)
+WHERE latitude IS NULL
+  AND localisation ~ '^\s*-?\d+(\.\d+)?\s*,\s*-?\d+(\.\d+)?\s*$';
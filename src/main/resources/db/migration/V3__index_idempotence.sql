@@ -0,0 +1,3 @@
+-- Purge périodique des clés d'idempotence expirées (IdempotenceReservations)
+CREATE INDEX IF NOT EXISTS idx_idempotence_reservation_date_creation
+    ON idempotence_reservation (date_creation);
@@ -0,0 +1,8 @@
+-- Reprise de V2 avec les mêmes séparateurs que GeoUtils (',' ou ';') : les réservations
+-- saisies en "latitude;longitude" restaient sans coordonnées. Le séparateur est ramené à ','
+-- avant le découpage. V2 n'est pas modifiée : déjà appliquée, sa somme de contrôle doit rester.
+UPDATE reservation
+SET latitude  = CAST(split_part(regexp_replace(regexp_replace(localisation, '\s', '', 'g'), ';', ',', 'g'), ',', 1) AS double precision),
+    longitude = CAST(split_part(regexp_replace(regexp_replace(localisation, '\s', '', 'g'), ';', ',', 'g'), ',', 2) AS double precision)
+WHERE latitude IS NULL
+  AND localisation ~ '^\s*-?\d+(\.\d+)?\s*[,;]\s*-?\d+(\.\d+)?\s*$';
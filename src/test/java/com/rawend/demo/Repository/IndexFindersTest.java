@@ -0,0 +1,239 @@
+package com.rawend.demo.Repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rawend.demo.entity.ReservationStatus;
+
+/**
+ * Vérifie avec EXPLAIN que chaque finder passe par l'index créé pour lui dans
+ * db/migration. Le SQL expliqué est celui que Hibernate émet réellement pour l'appel du
+ * repository (capturé par un {@link StatementInspector}), et le planificateur garde ses
+ * réglages par défaut : les tables reçoivent d'abord un volume réaliste, puis ANALYZE.
+ * Tout est annulé en fin de test avec la transaction.
+ */
+@SpringBootTest
+@Transactional
+class IndexFindersTest {
+
+    private static final List<String> REQUETES = new CopyOnWriteArrayList<>();
+
+    /** Relève chaque requête préparée par Hibernate, sans la modifier. */
+    static class CaptureRequetes implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            REQUETES.add(sql);
+            return sql;
+        }
+    }
+
+    @TestConfiguration
+    static class Configuration {
+
+        @Bean
+        HibernatePropertiesCustomizer captureRequetes() {
+            return proprietes -> proprietes.put(AvailableSettings.STATEMENT_INSPECTOR, new CaptureRequetes());
+        }
+    }
+
+    // Bornes hors des données existantes de la base de test
+    private static final long BASE = 1_000_000_000L;
+    private static final long ABSENT = BASE - 1;
+    private static final LocalDateTime JOUR = LocalDateTime.of(2025, 1, 6, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private AffectationTechnicienRepository affectationTechnicienRepository;
+
+    @Autowired
+    private TechnicienEmploiRepository technicienEmploiRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private AvisRepository avisRepository;
+
+    @BeforeEach
+    void peuplerTables() {
+        // Les lignes générées ne référencent pas de vrais utilisateurs : clés étrangères
+        // retirées le temps de la transaction (DDL annulé avec elle)
+        jdbcTemplate.execute("""
+            DO $$
+            DECLARE c record;
+            BEGIN
+                FOR c IN SELECT conname, conrelid::regclass AS nom FROM pg_constraint
+                         WHERE contype = 'f' AND conrelid::regclass::text IN
+                             ('reservation', 'affectations_techniciens', 'technicien_emplois',
+                              'service', 'promotion_service', 'avis')
+                LOOP
+                    EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', c.nom, c.conname);
+                END LOOP;
+            END $$""");
+
+        // Une réservation toutes les 30 minutes sur un peu plus d'un an, une sur dix EN_ATTENTE
+        jdbcTemplate.update("""
+            INSERT INTO reservation (id, user_id, service_id, status, date_reservation, date_creation, technicien_id, duree)
+            SELECT ? + i, ? + i % 1000, ? + i % 500,
+                   CASE WHEN i % 10 = 0 THEN 'EN_ATTENTE' ELSE 'TERMINEE' END,
+                   timestamp '2024-06-01' + i * interval '30 minutes',
+                   timestamp '2024-05-01' + i * interval '30 minutes',
+                   CASE WHEN i % 4 = 0 THEN NULL ELSE ? + i % 200 END, '01:00'
+            FROM generate_series(1, 20000) i""", BASE, BASE, BASE, BASE);
+        jdbcTemplate.update("""
+            INSERT INTO affectations_techniciens (id, technicien_id, reservation_id, date_debut, date_fin, username)
+            SELECT ? + i, ? + i % 200, ? + i,
+                   timestamp '2024-06-01' + i * interval '30 minutes',
+                   timestamp '2024-06-01' + i * interval '30 minutes' + interval '1 hour', 'technicien' || i % 200
+            FROM generate_series(1, 20000) i""", BASE, BASE, BASE);
+        jdbcTemplate.update("""
+            INSERT INTO technicien_emplois (id, user_id, jour_repos, heure_debut, heure_fin, email)
+            SELECT ? + i, ? + i, 'DIMANCHE', time '08:00', time '22:00', 'technicien' || i || '@example.com'
+            FROM generate_series(1, 2000) i""", BASE, BASE);
+        jdbcTemplate.update("""
+            INSERT INTO notifications (id, user_email, message, date_envoi, is_read)
+            SELECT ? + i, 'client' || i % 1000 || '@example.com', 'Notification ' || i,
+                   timestamp '2024-06-01' + i * interval '30 minutes', i % 5 <> 0
+            FROM generate_series(1, 20000) i""", BASE);
+        jdbcTemplate.update("""
+            INSERT INTO promotion (id, code_promo, valeur_reduction, actif)
+            SELECT ? + i, 'CODE' || i, 10, true FROM generate_series(1, 5000) i""", BASE);
+        jdbcTemplate.update("""
+            INSERT INTO service (id, titre, prix, promotion_id)
+            SELECT ? + i, 'Service ' || i, 20, CASE WHEN i % 2 = 0 THEN ? + i % 5000 END
+            FROM generate_series(1, 5000) i""", BASE, BASE);
+        jdbcTemplate.update("""
+            INSERT INTO promotion_service (promotion_id, service_id)
+            SELECT ? + i % 5000, ? + i FROM generate_series(1, 5000) i""", BASE, BASE);
+        jdbcTemplate.update("""
+            INSERT INTO avis (id, service_id, etoile, email)
+            SELECT ? + i, ? + i % 5000, 1 + i % 5, 'client' || i % 1000 || '@example.com'
+            FROM generate_series(1, 20000) i""", BASE, BASE);
+
+        jdbcTemplate.execute("ANALYZE reservation, affectations_techniciens, technicien_emplois, notifications, "
+            + "promotion, service, promotion_service, avis");
+    }
+
+    @Test
+    void reservationFinders() {
+        verifier(() -> reservationRepository.findByTechnicienId(ABSENT),
+            "reservation", new Object[] { ABSENT }, "idx_reservation_technicien");
+        verifier(() -> reservationRepository.findByUserEmailOrderByDateCreationDesc("absent@example.com"),
+            "reservation", new Object[] { "absent@example.com" }, "idx_reservation_user_date_creation");
+        verifier(() -> reservationRepository.findCreneauxEntre(JOUR, JOUR.plusDays(1)),
+            "reservation", new Object[] { JOUR, JOUR.plusDays(1) },
+            "idx_reservation_date_reservation", "idx_reservation_en_attente_date");
+        LocalDateTime futur = JOUR.plusYears(5);
+        verifier(() -> reservationRepository
+                .findByStatusAndDateReservationGreaterThanEqualAndDateReservationLessThanOrderByDateReservation(
+                    ReservationStatus.EN_ATTENTE, futur, futur.plusDays(1)),
+            "reservation", new Object[] { ReservationStatus.EN_ATTENTE, futur, futur.plusDays(1) },
+            "idx_reservation_en_attente_date", "idx_reservation_date_reservation");
+    }
+
+    @Test
+    void affectationFinders() {
+        LocalDateTime debut = JOUR.plusHours(10);
+        LocalDateTime fin = JOUR.plusHours(12);
+        // Spring Data limite un exists à une ligne : dernier paramètre
+        verifier(() -> affectationTechnicienRepository.existsByTechnicienIdAndDateDebutBeforeAndDateFinAfter(BASE + 7, fin, debut),
+            "affectations_techniciens", new Object[] { BASE + 7, fin, debut, 1 }, "idx_affectation_technicien_periode");
+        verifier(() -> affectationTechnicienRepository.findByReservationId(ABSENT),
+            "affectations_techniciens", new Object[] { ABSENT }, "idx_affectation_reservation");
+        verifier(() -> affectationTechnicienRepository.findPlagesEntre(JOUR, JOUR.plusDays(1)),
+            "affectations_techniciens", new Object[] { JOUR.plusDays(1), JOUR },
+            "idx_affectation_date_debut", "idx_affectation_technicien_periode");
+        verifier(() -> technicienEmploiRepository.findByEmail("absent@example.com"),
+            "technicien_emplois", new Object[] { "absent@example.com" }, "idx_technicien_emplois_email");
+    }
+
+    @Test
+    void notificationFinders() {
+        verifier(() -> notificationRepository.findByUserEmailOrderByDateEnvoiDesc("absent@example.com"),
+            "notifications", new Object[] { "absent@example.com" }, "idx_notifications_user_date_envoi");
+        verifier(() -> notificationRepository.countByUserEmailAndIsReadFalse("absent@example.com"),
+            "notifications", new Object[] { "absent@example.com" },
+            "idx_notifications_non_lues", "idx_notifications_user_date_envoi");
+    }
+
+    @Test
+    void catalogueFinders() {
+        verifier(() -> promotionRepository.findByCodePromo("ABSENT"),
+            "promotion", new Object[] { "ABSENT" }, "idx_promotion_code_promo");
+        verifier(() -> promotionRepository.findByServices_Id(ABSENT),
+            "promotion_service", new Object[] { ABSENT }, "idx_promotion_service_service");
+        verifier(() -> serviceRepository.findByPromotionId(ABSENT),
+            "service", new Object[] { ABSENT }, "idx_service_promotion");
+        verifier(() -> avisRepository.findByService_Id(ABSENT),
+            "avis", new Object[] { ABSENT }, "idx_avis_service");
+    }
+
+    /**
+     * Appelle le finder, reprend la première requête émise, y replace les valeurs des
+     * paramètres (plan personnalisé, comme pour les premières exécutions d'une requête
+     * préparée) et vérifie que son plan ne parcourt pas toute la table et utilise l'un des
+     * index attendus.
+     */
+    private void verifier(Runnable finder, String table, Object[] parametres, String... index) {
+        REQUETES.clear();
+        finder.run();
+        assertFalse(REQUETES.isEmpty(), "Aucune requête émise pour la table " + table);
+        String sql = REQUETES.get(0);
+
+        String[] morceaux = sql.split("\\?", -1);
+        assertEquals(parametres.length, morceaux.length - 1, () -> "Nombre de paramètres inattendu pour : " + sql);
+        StringBuilder requete = new StringBuilder(morceaux[0]);
+        for (int i = 0; i < parametres.length; i++) {
+            requete.append(litteral(parametres[i])).append(morceaux[i + 1]);
+        }
+
+        List<String> lignes = jdbcTemplate.queryForList("EXPLAIN " + requete, String.class);
+        String plan = String.join("\n", lignes);
+
+        assertFalse(plan.contains("Seq Scan on " + table + " "), () -> "Parcours séquentiel pour : " + requete + "\n" + plan);
+        boolean indexUtilise = false;
+        for (String nom : index) {
+            indexUtilise |= plan.contains(nom);
+        }
+        assertTrue(indexUtilise, () -> "Index " + String.join(" ou ", index) + " non utilisé pour : " + requete + "\n" + plan);
+    }
+
+    private static String litteral(Object valeur) {
+        if (valeur instanceof Number) {
+            return valeur.toString();
+        }
+        if (valeur instanceof LocalDateTime date) {
+            return "timestamp '" + date.toString().replace('T', ' ') + "'";
+        }
+        return "'" + valeur.toString().replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,35 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Appels par le proxy Spring, sans transaction ouverte par le test : les verrous des
+ * techniciens exigent la transaction que les méthodes déclarent elles-mêmes.
+ */
+@SpringBootTest
+class AffectationAutomatiqueTest {
+
+    // Aucune réservation en attente à cette date : rien n'est écrit
+    private static final LocalDate JOUR_VIDE = LocalDate.of(2000, 1, 3);
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Test
+    void affectationDuJourOuvreSaPropreTransaction() {
+        Map<String, Object> rapport = reservationService.affecterReservationsDuJour(JOUR_VIDE);
+
+        assertEquals(JOUR_VIDE, rapport.get("date"));
+        assertTrue(((List<?>) rapport.get("affectees")).isEmpty());
+        assertTrue(((List<?>) rapport.get("nonAffectees")).isEmpty());
+    }
+}
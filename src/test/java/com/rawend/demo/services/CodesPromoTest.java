@@ -0,0 +1,34 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class CodesPromoTest {
+
+    @Test
+    void retrouveTousLesCodesAjoutes() {
+        CodesPromo.FiltreBloom filtre = new CodesPromo.FiltreBloom(500);
+        for (int i = 0; i < 500; i++) {
+            filtre.ajouter("ETE" + i);
+        }
+        for (int i = 0; i < 500; i++) {
+            assertTrue(filtre.peutContenir("ETE" + i));
+        }
+    }
+
+    @Test
+    void ecarteLaPlupartDesCodesInconnus() {
+        CodesPromo.FiltreBloom filtre = new CodesPromo.FiltreBloom(500);
+        for (int i = 0; i < 500; i++) {
+            filtre.ajouter("ETE" + i);
+        }
+        int fauxPositifs = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filtre.peutContenir("BOT-" + i)) {
+                fauxPositifs++;
+            }
+        }
+        assertTrue(fauxPositifs < 300, "faux positifs : " + fauxPositifs);
+    }
+}
@@ -0,0 +1,111 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.rawend.demo.Repository.ServiceRepository;
+import com.rawend.demo.entity.ServiceEntity;
+
+class ImportReservationsTest {
+
+    @AfterEach
+    void nettoyer() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void decoupeLesChampsSimples() {
+        assertEquals(List.of("client@example.com", "3", "2025-01-06T10:00", "SUR_PLACE", ""),
+            ImportReservations.decouper("client@example.com,3,2025-01-06T10:00,SUR_PLACE,"));
+    }
+
+    @Test
+    void gardeLesVirgulesEntreGuillemets() {
+        assertEquals(List.of("client@example.com", "36.8065,10.1815", "Station \"Nord\""),
+            ImportReservations.decouper("client@example.com,\"36.8065,10.1815\",\"Station \"\"Nord\"\"\""));
+    }
+
+    @Test
+    void rafraichitSeulementLesJoursImportes() throws Exception {
+        ServiceEntity service = new ServiceEntity();
+        service.setId(3L);
+        service.setTitre("Lavage complet");
+        service.setPrix(20.0);
+        service.setDuree("1h");
+        ServiceRepository serviceRepository = mock(ServiceRepository.class);
+        when(serviceRepository.findAll()).thenReturn(List.of(service));
+
+        ResultSet client = mock(ResultSet.class);
+        when(client.getString("email")).thenReturn("client@example.com");
+        when(client.getLong("id")).thenReturn(1L);
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(2).processRow(client);
+            return null;
+        }).when(namedParameterJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+        SlotUsageService slotUsageService = mock(SlotUsageService.class);
+        DiffusionDisponibilites diffusionDisponibilites = mock(DiffusionDisponibilites.class);
+        OccupationIndex occupationIndex = mock(OccupationIndex.class);
+
+        ImportReservations importReservations = new ImportReservations();
+        ReflectionTestUtils.setField(importReservations, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(importReservations, "namedParameterJdbcTemplate", namedParameterJdbcTemplate);
+        ReflectionTestUtils.setField(importReservations, "serviceRepository", serviceRepository);
+        ReflectionTestUtils.setField(importReservations, "occupationIndex", occupationIndex);
+        ReflectionTestUtils.setField(importReservations, "slotUsageService", slotUsageService);
+        ReflectionTestUtils.setField(importReservations, "diffusionDisponibilites", diffusionDisponibilites);
+        ReflectionTestUtils.setField(importReservations, "versionsDonnees", new VersionsDonnees());
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Deux jours consécutifs (la seconde ligne déborde sur le 7), puis un jour isolé en mars
+        String csv = "emailClient,serviceId,dateReservation\n"
+            + "client@example.com,3,2025-01-06T10:00\n"
+            + "client@example.com,3,2025-01-06T23:30\n"
+            + "client@example.com,3,2025-03-10T09:00\n";
+        Map<String, Object> rapport = importReservations.importer(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportReservations.Format.CSV);
+
+        assertEquals(3L, rapport.get("importees"));
+        LocalDateTime janvier = LocalDateTime.of(2025, 1, 6, 0, 0);
+        LocalDateTime mars = LocalDateTime.of(2025, 3, 10, 0, 0);
+        verify(slotUsageService).rafraichir(janvier, janvier.plusDays(2));
+        verify(slotUsageService).rafraichir(mars, mars.plusDays(1));
+        verifyNoMoreInteractions(slotUsageService);
+        verify(diffusionDisponibilites).signaler(janvier, janvier.plusDays(2));
+        verify(diffusionDisponibilites).signaler(mars, mars.plusDays(1));
+        verifyNoMoreInteractions(diffusionDisponibilites);
+
+        verify(occupationIndex, never()).invalider();
+        for (TransactionSynchronization synchronisation : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronisation.afterCommit();
+        }
+        verify(occupationIndex).invalider();
+    }
+}
@@ -0,0 +1,76 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.rawend.demo.entity.PromotionEntity;
+
+class IndexPromotionsTest {
+
+    private static PromotionEntity promo(long id, String debut, String fin, Boolean actif) {
+        PromotionEntity promo = new PromotionEntity();
+        promo.setId(id);
+        promo.setActif(actif);
+        promo.setDateDebut(Date.valueOf(debut));
+        promo.setDateFin(Date.valueOf(fin));
+        return promo;
+    }
+
+    private static List<Long> actives(NavigableMap<LocalDate, List<Long>> segments, String jour) {
+        Map.Entry<LocalDate, List<Long>> segment = segments.floorEntry(LocalDate.parse(jour));
+        return segment != null ? segment.getValue() : List.of();
+    }
+
+    @Test
+    void bornesInclusesDesDeuxCotes() {
+        NavigableMap<LocalDate, List<Long>> segments = IndexPromotions.construire(List.of(
+            promo(1, "2025-06-01", "2025-06-10", true),
+            promo(2, "2025-06-10", "2025-06-20", true),
+            promo(3, "2025-06-05", "2025-06-15", false)));
+
+        assertEquals(List.of(), actives(segments, "2025-05-31"));
+        assertEquals(List.of(1L), actives(segments, "2025-06-01"));
+        assertEquals(List.of(1L, 2L), actives(segments, "2025-06-10"));
+        assertEquals(List.of(2L), actives(segments, "2025-06-11"));
+        assertEquals(List.of(2L), actives(segments, "2025-06-20"));
+        assertEquals(List.of(), actives(segments, "2025-06-21"));
+    }
+
+    @Test
+    void actifNonRenseigneVautInactif() {
+        NavigableMap<LocalDate, List<Long>> segments = IndexPromotions.construire(List.of(
+            promo(1, "2025-06-01", "2025-06-10", null),
+            promo(2, "2025-06-05", "2025-06-20", true)));
+
+        assertEquals(List.of(), actives(segments, "2025-06-02"));
+        assertEquals(List.of(2L), actives(segments, "2025-06-05"));
+        assertFalse(IndexPromotions.estActive(null, Date.valueOf("2025-06-01"), Date.valueOf("2025-06-10"),
+            LocalDate.parse("2025-06-05")));
+    }
+
+    @Test
+    void segmentsImbriquesEtOuverts() {
+        PromotionEntity sansFin = promo(4, "2025-06-03", "2025-06-03", true);
+        sansFin.setDateFin(null);
+        NavigableMap<LocalDate, List<Long>> segments = IndexPromotions.construire(List.of(
+            promo(3, "2025-06-01", "2025-06-30", true),
+            promo(1, "2025-06-10", "2025-06-12", true),
+            sansFin,
+            promo(2, "2025-06-12", "2025-06-12", true)));
+
+        assertEquals(List.of(3L), actives(segments, "2025-06-01"));
+        assertEquals(List.of(3L, 4L), actives(segments, "2025-06-03"));
+        assertEquals(List.of(1L, 3L, 4L), actives(segments, "2025-06-10"));
+        assertEquals(List.of(1L, 2L, 3L, 4L), actives(segments, "2025-06-12"));
+        assertEquals(List.of(3L, 4L), actives(segments, "2025-06-13"));
+        assertEquals(List.of(4L), actives(segments, "2025-07-01"));
+    }
+}
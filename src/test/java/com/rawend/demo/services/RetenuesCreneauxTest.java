@@ -0,0 +1,66 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class RetenuesCreneauxTest {
+
+    private static final long PREMIER = 1000;
+    private static final long DERNIER = 1002;
+
+    private RetenuesCreneaux retenues;
+
+    @BeforeEach
+    void preparer() {
+        DiffusionDisponibilites diffusion = mock(DiffusionDisponibilites.class);
+        when(diffusion.modifier(any(), any(), any()))
+            .thenAnswer(invocation -> invocation.<BooleanSupplier>getArgument(2).getAsBoolean());
+        OccupationIndex index = mock(OccupationIndex.class);
+        when(index.depasseCapacite(anyLong(), anyLong(), any())).thenReturn(false);
+
+        retenues = new RetenuesCreneaux();
+        ReflectionTestUtils.setField(retenues, "diffusionDisponibilites", diffusion);
+        ReflectionTestUtils.setField(retenues, "occupationIndex", index);
+        ReflectionTestUtils.setField(retenues, "versionsDonnees", new VersionsDonnees());
+        ReflectionTestUtils.setField(retenues, "dureeMinutes", 5L);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void nettoyer() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void uneRetenueNeSertQuUneFois() {
+        RetenuesCreneaux.Retenue retenue = retenues.retenir("client@example.com", PREMIER, DERNIER, creneau -> 1);
+
+        assertNotNull(retenues.consommer(retenue.id(), "client@example.com", PREMIER, DERNIER));
+        assertNull(retenues.consommer(retenue.id(), "client@example.com", PREMIER, DERNIER));
+    }
+
+    @Test
+    void laRetenueRevientSiLaTransactionEchoue() {
+        RetenuesCreneaux.Retenue retenue = retenues.retenir("client@example.com", PREMIER, DERNIER, creneau -> 1);
+        retenues.consommer(retenue.id(), "client@example.com", PREMIER, DERNIER);
+
+        for (TransactionSynchronization synchronisation : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronisation.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertNotNull(retenues.consommer(retenue.id(), "client@example.com", PREMIER, DERNIER));
+    }
+}
@@ -0,0 +1,143 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.rawend.demo.entity.TimeSlot;
+
+class SaturationEngineTest {
+
+    private static final int MINUTES = SaturationEngine.MINUTES_PAR_CRENEAU;
+    private static final int CRENEAUX_PAR_JOUR = SaturationEngine.CRENEAUX_PAR_JOUR;
+
+    // Lundi 06/01/2025 à minuit, en minutes depuis l'epoch
+    private static final long LUNDI = 20094L * 24 * 60;
+
+    // Trois techniciens de 8h à 18h, un seul le dimanche
+    private static final SaturationEngine.Capacite CAPACITE = creneau -> {
+        long jour = Math.floorMod(Math.floorDiv(creneau, CRENEAUX_PAR_JOUR) + 3, 7);
+        long heure = Math.floorMod(creneau, CRENEAUX_PAR_JOUR) * MINUTES / 60;
+        if (heure < 8 || heure >= 18) {
+            return 0;
+        }
+        return jour == 6 ? 1 : 3;
+    };
+
+    @Test
+    void sweepMatchesBruteForceOnRandomIntervals() {
+        Random random = new Random(42);
+        for (int essai = 0; essai < 500; essai++) {
+            int n = random.nextInt(40);
+            long[] debuts = new long[n];
+            long[] fins = new long[n];
+            for (int k = 0; k < n; k++) {
+                debuts[k] = LUNDI + random.nextInt(7 * 24 * 60);
+                fins[k] = debuts[k] + random.nextInt(4 * 60);
+            }
+
+            List<long[]> attendu = forceBrute(debuts.clone(), fins.clone(), n);
+            assertEquals(texte(attendu),
+                texte(enCreneaux(SaturationEngine.creneauxSatures(debuts, fins, n, CAPACITE))));
+        }
+    }
+
+    @Test
+    void sweepAndCountersGiveSameAnswer() {
+        Random random = new Random(7);
+        for (int essai = 0; essai < 200; essai++) {
+            int n = random.nextInt(60);
+            long[] debuts = new long[n];
+            long[] fins = new long[n];
+            for (int k = 0; k < n; k++) {
+                debuts[k] = LUNDI + random.nextInt(7 * 24 * 60);
+                fins[k] = debuts[k] + random.nextInt(3 * 60);
+            }
+
+            // Compteurs par jour, comme dans slot_usage et l'index en mémoire
+            long premier = LUNDI / MINUTES;
+            int[][] jours = new int[8][CRENEAUX_PAR_JOUR];
+            for (int k = 0; k < n; k++) {
+                long debut = Math.floorDiv(debuts[k], MINUTES);
+                long fin = Math.floorDiv(fins[k] + MINUTES - 1, MINUTES);
+                for (long c = debut; c < fin; c++) {
+                    jours[(int) ((c - premier) / CRENEAUX_PAR_JOUR)][(int) ((c - premier) % CRENEAUX_PAR_JOUR)]++;
+                }
+            }
+            SaturationEngine.Fusion fusion = new SaturationEngine.Fusion();
+            for (int j = 0; j < jours.length; j++) {
+                SaturationEngine.balayer(premier + (long) j * CRENEAUX_PAR_JOUR, jours[j], CAPACITE, fusion);
+            }
+
+            assertEquals(texte(enCreneaux(SaturationEngine.creneauxSatures(debuts, fins, n, CAPACITE))),
+                texte(enCreneaux(fusion.resultat())));
+        }
+    }
+
+    @Test
+    void emptyIntervalsAreIgnored() {
+        long[] debuts = { LUNDI + 9 * 60, LUNDI + 9 * 60 };
+        long[] fins = { LUNDI + 9 * 60, LUNDI + 8 * 60 };
+        assertEquals(0, SaturationEngine.creneauxSatures(debuts, fins, 2, creneau -> 1).size());
+    }
+
+    @Test
+    void adjacentSaturatedSlotsAcrossMidnightAreMerged() {
+        long[] debuts = { LUNDI + 23 * 60 };
+        long[] fins = { LUNDI + 25 * 60 };
+        List<TimeSlot> creneaux = SaturationEngine.creneauxSatures(debuts, fins, 1, creneau -> 1);
+        assertEquals(1, creneaux.size());
+        assertEquals(SaturationEngine.debutCreneau((LUNDI + 23 * 60) / MINUTES), creneaux.get(0).getStartTime());
+        assertEquals(SaturationEngine.debutCreneau((LUNDI + 25 * 60) / MINUTES), creneaux.get(0).getEndTime());
+    }
+
+    // Référence : compte les réservations créneau par créneau puis fusionne
+    private static List<long[]> forceBrute(long[] debuts, long[] fins, int n) {
+        long premier = Long.MAX_VALUE;
+        long dernier = Long.MIN_VALUE;
+        for (int k = 0; k < n; k++) {
+            premier = Math.min(premier, Math.floorDiv(debuts[k], MINUTES));
+            dernier = Math.max(dernier, Math.floorDiv(fins[k] + MINUTES - 1, MINUTES));
+        }
+
+        List<long[]> periodes = new ArrayList<>();
+        for (long c = premier; c < dernier; c++) {
+            int occupation = 0;
+            for (int k = 0; k < n; k++) {
+                if (Math.floorDiv(debuts[k], MINUTES) <= c && c < Math.floorDiv(fins[k] + MINUTES - 1, MINUTES)) {
+                    occupation++;
+                }
+            }
+            if (occupation > 0 && occupation >= CAPACITE.capacite(c)) {
+                if (!periodes.isEmpty() && periodes.get(periodes.size() - 1)[1] == c) {
+                    periodes.get(periodes.size() - 1)[1] = c + 1;
+                } else {
+                    periodes.add(new long[] { c, c + 1 });
+                }
+            }
+        }
+        return periodes;
+    }
+
+    private static List<long[]> enCreneaux(List<TimeSlot> periodes) {
+        List<long[]> creneaux = new ArrayList<>();
+        for (TimeSlot periode : periodes) {
+            creneaux.add(new long[] {
+                SaturationEngine.versMinutes(periode.getStartTime()) / MINUTES,
+                SaturationEngine.versMinutes(periode.getEndTime()) / MINUTES });
+        }
+        return creneaux;
+    }
+
+    private static String texte(List<long[]> periodes) {
+        StringBuilder texte = new StringBuilder();
+        for (long[] periode : periodes) {
+            texte.append(periode[0]).append('-').append(periode[1]).append(' ');
+        }
+        return texte.toString();
+    }
+}
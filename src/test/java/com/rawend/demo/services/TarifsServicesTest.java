@@ -0,0 +1,21 @@
+package com.rawend.demo.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.rawend.demo.entity.TypeReduction;
+
+class TarifsServicesTest {
+
+    @Test
+    void arrondiLePourcentageAuMillime() {
+        assertEquals(26.666, TarifsServices.appliquer(33.333, TypeReduction.POURCENTAGE, 20));
+    }
+
+    @Test
+    void plafonneLeMontantFixeAZero() {
+        assertEquals(0.0, TarifsServices.appliquer(15, TypeReduction.MONTANT_FIXE, 20));
+        assertEquals(10.0, TarifsServices.appliquer(15, TypeReduction.MONTANT_FIXE, 5));
+    }
+}